@@ -1,5 +1,6 @@
 package controller;
 
+import model.BestInsertion;
 import model.Intersection;
 import model.Request;
 import model.Tour;
@@ -14,6 +15,7 @@ public class AddCommand implements Command {
     private final int indexRequest;
     private final int indexShortestPathToPickup;
     private final int indexShortestPathToDelivery;
+    private final BestInsertion insertion;
 
     /**
      * Create the command which add a request
@@ -25,18 +27,37 @@ public class AddCommand implements Command {
      * @param indexShortestPathToDelivery
      */
     public AddCommand(Tour tour, Request request, List<Intersection> intersections, int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery) {
+        this(tour, request, intersections, indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, null);
+    }
+
+    /**
+     * Create the command which add a request at its cheapest place, with the shortest paths found by the insertion
+     * @param tour current Tour
+     * @param request request to add
+     * @param intersections list of all intersections
+     * @param insertion the cheapest place of the request in the tour
+     */
+    public AddCommand(Tour tour, Request request, List<Intersection> intersections, BestInsertion insertion) {
+        this(tour, request, intersections, tour.getPlanningRequests().size(), insertion.getIndexShortestPathToPickup(), insertion.getIndexShortestPathToDelivery(), insertion);
+    }
+
+    private AddCommand(Tour tour, Request request, List<Intersection> intersections, int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, BestInsertion insertion) {
         this.tour = tour;
         this.request = request;
         this.intersections = intersections;
         this.indexRequest = indexRequest;
         this.indexShortestPathToPickup = indexShortestPathToPickup;
         this.indexShortestPathToDelivery = indexShortestPathToDelivery;
-
+        this.insertion = insertion;
     }
 
     @Override
     public void doCommand() {
-        tour.insertRequest(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, request, intersections);
+        if (insertion != null) {
+            tour.insertRequest(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, request, insertion::getShortestPath);
+        } else {
+            tour.insertRequest(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, request, intersections);
+        }
     }
 
     @Override
@@ -1,5 +1,6 @@
 package controller;
 
+import model.BestInsertion;
 import model.CityMap;
 import model.Tour;
 import view.Window;
@@ -38,7 +39,9 @@ public class AddRequestState extends State{
         if (pickupTimeOK && deliveryTimeOK && tour.getNewRequest().getPickupAddress() != null && tour.getNewRequest().getDeliveryAddress() != null) {
             tour.getNewRequest().setPickupDuration(Integer.parseInt(pickupTime) * 60);
             tour.getNewRequest().setDeliveryDuration(Integer.parseInt(deliveryTime) * 60);
-            listOfCommands.add(new AddCommand(tour, tour.getNewRequest(), cityMap.getIntersections(),tour.getPlanningRequests().size(), tour.getListShortestPaths().size()-1, tour.getListShortestPaths().size()));
+            // the request is inserted where it makes the tour the shortest
+            BestInsertion insertion = new BestInsertion(tour, tour.getNewRequest(), cityMap.getIntersections());
+            listOfCommands.add(new AddCommand(tour, tour.getNewRequest(), cityMap.getIntersections(), insertion));
             window.showRequestsPanel();
             window.setEnabledTour(true);
             tour.setNewRequest(null);
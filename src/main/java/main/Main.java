@@ -2,10 +2,13 @@ package main;
 
 import controller.Controller;
 import model.CityMap;
+import model.Fleet;
+import model.Request;
+import model.ShortestPath;
 import model.Tour;
+import xml.XMLDeserializer;
 
-import java.awt.*;
-import java.io.IOException;
+import java.io.File;
 
 /**
  * Main class.
@@ -15,11 +18,73 @@ public class Main {
 
     /**
      * Main method.
-     * @param args the arguments
+     * @param args the arguments: <code>--solver=name</code> forces the TSP solver (<code>auto</code> by default, see
+     *             <code>SolverRegistry</code>), <code>--time-limit=ms</code> sets the maximal computation time and
+     *             <code>--target-gap=gap</code> stops the computation once the tour is within this relative gap of
+     *             the optimal one, such as 0.01 for 1% (0 by default to search until the optimality is proven).
+     *             <code>--couriers=k</code> splits the requests between k couriers and prints their tours instead of
+     *             opening the window, the planning being read from <code>--map=file</code> and
+     *             <code>--requests=file</code>
      */
-    public static void main(String[] args) throws IOException, FontFormatException {
+    public static void main(String[] args) throws Exception {
         CityMap cityMap = new CityMap();
         Tour tour = new Tour();
-        new Controller(cityMap, tour) ;
+        int nbCouriers = 0;
+        String mapFile = null, requestsFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--solver=")) {
+                tour.getSolverRegistry().setForcedSolver(arg.substring("--solver=".length()));
+            } else if (arg.startsWith("--time-limit=")) {
+                tour.setTimeLimit(Integer.parseInt(arg.substring("--time-limit=".length())));
+            } else if (arg.startsWith("--target-gap=")) {
+                tour.setTargetGap(Double.parseDouble(arg.substring("--target-gap=".length())));
+            } else if (arg.startsWith("--couriers=")) {
+                nbCouriers = Integer.parseInt(arg.substring("--couriers=".length()));
+            } else if (arg.startsWith("--map=")) {
+                mapFile = arg.substring("--map=".length());
+            } else if (arg.startsWith("--requests=")) {
+                requestsFile = arg.substring("--requests=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg + ", expected --solver=name, --time-limit=ms, --target-gap=gap, --couriers=k, --map=file or --requests=file");
+            }
+        }
+        if (nbCouriers > 0) {
+            if (mapFile == null || requestsFile == null) throw new IllegalArgumentException("--couriers=k needs --map=file and --requests=file");
+            XMLDeserializer.deserializeMap(cityMap, XMLDeserializer.extractDocument(new File(mapFile)));
+            XMLDeserializer.deserializeRequests(tour, cityMap, XMLDeserializer.extractDocument(new File(requestsFile)));
+            Fleet fleet = new Fleet(tour, nbCouriers);
+            fleet.computeTours(cityMap.getIntersections());
+            printFleet(fleet, tour);
+        } else {
+            new Controller(cityMap, tour) ;
+        }
+    }
+
+    /**
+     * Print the tour of each courier of a fleet: its stops with their arrival time, its length and its duration
+     * @param fleet the fleet whose tours are computed
+     * @param planning the tour holding all the requests, which numbers them
+     */
+    private static void printFleet(Fleet fleet, Tour planning) {
+        for (int c = 0; c < fleet.getCourierTours().size(); c++) {
+            Tour courierTour = fleet.getCourierTours().get(c);
+            System.out.printf("Courier %d: %d requests, %.0f m, %s%n", c + 1, courierTour.getPlanningRequests().size(),
+                    courierTour.getTourLength(), courierTour.getTotalDuration());
+            System.out.printf("  %s depot %d%n", courierTour.getDepartureTime(), courierTour.getDepotAddress().getId());
+            for (ShortestPath path : courierTour.getListShortestPaths()) {
+                int node = path.getEndNodeNumber();
+                if (node == 0) {
+                    System.out.printf("  %s depot %d%n", courierTour.getArrivalTime(), path.getEndAddress().getId());
+                } else {
+                    Request request = courierTour.getPlanningRequests().get((node - 1) / 2);
+                    boolean pickup = node % 2 == 1;
+                    System.out.printf("  %s %s of request %d at %d%n",
+                            pickup ? request.getPickupArrivalTime() : request.getDeliveryArrivalTime(),
+                            pickup ? "pickup" : "delivery", planning.getPlanningRequests().indexOf(request) + 1,
+                            path.getEndAddress().getId());
+                }
+            }
+        }
+        System.out.printf("Total length: %.0f m%n", fleet.getTotalLength());
     }
 }
@@ -0,0 +1,327 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parallel ant colony optimization (max-min ant system), for large plannings.
+ * Several colonies run at the same time, one per thread. At each iteration the ants of a colony build tours from the
+ * depot, each ant choosing its next vertex among the unvisited vertices whose predecessors are visited, so that a
+ * pickup is always visited before its delivery. The choice favours the arcs with much pheromone and a low cost.
+ * The best tour of the iteration is improved by local search, then the pheromone evaporates and the arcs of this tour
+ * receive new pheromone, between a minimal and a maximal value so that no arc is ever forgotten.
+ * Each colony updates its own copy of the pheromone, and merges it with the shared pheromone every few iterations: the
+ * merge goes row by row, each row with its own lock, so that the colonies seldom wait for each other while the good
+ * arcs found by a colony guide the others. The best tours of all colonies are posted to the publisher which updates
+ * the tour.
+ */
+public class AntColonyTSP implements TSP {
+
+    /**
+     * The number of ants of a colony at each iteration
+     */
+    private static final int NB_ANTS = 10;
+
+    /**
+     * The weight of the cost of the arcs in the choice of the ants, against their pheromone
+     */
+    private static final double BETA = 3;
+
+    /**
+     * The part of the pheromone evaporating at each iteration
+     */
+    private static final double EVAPORATION = 0.1;
+
+    /**
+     * The probability that an ant takes the best arc instead of drawing it at random
+     */
+    private static final double EXPLOITATION = 0.9;
+
+    /**
+     * The number of iterations of a colony between two merges with the shared pheromone
+     */
+    private static final int MERGE_INTERVAL = 10;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The random generator giving the seed of each colony
+     */
+    private final Random random;
+
+    /**
+     * The number of colonies running at the same time
+     */
+    private final int nbColonies;
+
+    /**
+     * The best solution found so far, shared by the colonies
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The number of iterations of all the colonies during the last search
+     */
+    private final AtomicLong nbIterations = new AtomicLong();
+
+    /**
+     * Create a search with one colony per processor and a random seed
+     */
+    public AntColonyTSP() {
+        this(new Random(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a search with a given random generator, for reproducible colonies
+     * @param random the random generator
+     * @param nbColonies the number of colonies running at the same time
+     */
+    public AntColonyTSP(Random random, int nbColonies) {
+        this.random = random;
+        this.nbColonies = Math.max(1, nbColonies);
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long deadline = System.currentTimeMillis() + timeLimit;
+        int nbVertices = g.getNbVertices();
+        incumbent = new Incumbent(nbVertices);
+        nbIterations.set(0);
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        if (incumbent.seed(g, initialSolution, publisher, deadline) == null) {
+            publisher.close();
+            tour.setTourComputed(true);
+            return;
+        }
+        double seedCost = incumbent.getSolutionCost();
+
+        CostMatrix costs = CostMatrix.of(g);
+        double[] heuristic = new double[nbVertices * nbVertices];
+        for (int i = 0; i < nbVertices; i++) {
+            for (int j = 0; j < nbVertices; j++) {
+                if (costs.arc(i, j)) heuristic[i * nbVertices + j] = Math.pow(1 / (1 + costs.cost(i, j)), BETA);
+            }
+        }
+        double[] sharedPheromone = new double[nbVertices * nbVertices];
+        Arrays.fill(sharedPheromone, 1 / (EVAPORATION * seedCost));
+        Object[] rowLocks = new Object[nbVertices];
+        for (int i = 0; i < nbVertices; i++) rowLocks[i] = new Object();
+
+        ArrayList<Runnable> colonies = new ArrayList<>();
+        for (int c = 0; c < nbColonies; c++) {
+            Colony colony = new Colony(new Random(random.nextLong()), g, costs, heuristic, sharedPheromone, rowLocks);
+            colonies.add(() -> colony.run(tour, publisher, deadline));
+        }
+        ParallelTasks.runAll("ant-colony", nbColonies, colonies, "An ant colony failed");
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Getter for nbIterations attribute.
+     * @return the number of iterations of all the colonies during the last search
+     */
+    public long getNbIterations() {
+        return nbIterations.get();
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
+    }
+
+    /**
+     * A colony of ants with its own copy of the pheromone, all its arrays being allocated once
+     */
+    private class Colony {
+
+        /**
+         * The random generator of the colony
+         */
+        private final Random random;
+
+        /**
+         * The precedence constraints between the vertices
+         */
+        private final Precedence precedence;
+
+        /**
+         * The costs of the graph studied
+         */
+        private final CostMatrix costs;
+
+        /**
+         * The attractiveness of each arc from its cost, shared by the colonies and never modified
+         */
+        private final double[] heuristic;
+
+        /**
+         * The pheromone shared by the colonies, each row being modified under its lock
+         */
+        private final double[] sharedPheromone;
+
+        /**
+         * The lock of each row of the shared pheromone
+         */
+        private final Object[] rowLocks;
+
+        /**
+         * The pheromone of the colony
+         */
+        private final double[] pheromone;
+
+        /**
+         * The number of vertices of the graph studied
+         */
+        private final int nbVertices;
+
+        /**
+         * The bitset of the vertices visited by the current ant
+         */
+        private final long[] visited;
+
+        /**
+         * The vertices which the current ant may visit next, and their weights
+         */
+        private final int[] candidates;
+        private final double[] weights;
+
+        Colony(Random random, Graph g, CostMatrix costs, double[] heuristic, double[] sharedPheromone, Object[] rowLocks) {
+            this.random = random;
+            this.precedence = g.getPrecedence();
+            this.costs = costs;
+            this.heuristic = heuristic;
+            this.sharedPheromone = sharedPheromone;
+            this.rowLocks = rowLocks;
+            this.nbVertices = g.getNbVertices();
+            this.pheromone = new double[nbVertices * nbVertices];
+            this.visited = new long[(nbVertices + 63) >>> 6];
+            this.candidates = new int[nbVertices];
+            this.weights = new double[nbVertices];
+            // the colonies are created before any of them runs
+            System.arraycopy(sharedPheromone, 0, pheromone, 0, pheromone.length);
+        }
+
+        /**
+         * Run the iterations of the colony until the time limit or until the computation is stopped
+         * @param tour the tour being computed
+         * @param publisher the channel through which the tours are published
+         * @param deadline the time at which the search must stop
+         */
+        void run(Tour tour, SolutionPublisher publisher, long deadline) {
+            int[] ant = new int[nbVertices];
+            int[] iterationBest = new int[nbVertices];
+            for (long iteration = 1; !tour.isTourComputed() && System.currentTimeMillis() < deadline; iteration++) {
+                double iterationBestCost = Double.POSITIVE_INFINITY;
+                for (int k = 0; k < NB_ANTS; k++) {
+                    double cost = construct(ant);
+                    if (cost < iterationBestCost) {
+                        iterationBestCost = cost;
+                        System.arraycopy(ant, 0, iterationBest, 0, nbVertices);
+                    }
+                }
+                if (iterationBestCost < Double.POSITIVE_INFINITY) {
+                    iterationBestCost = LocalSearch.improve(costs, iterationBest, deadline);
+                    incumbent.offer(iterationBest, iterationBestCost, publisher);
+                    update(iterationBest, iterationBestCost);
+                }
+                nbIterations.incrementAndGet();
+                if (iteration % MERGE_INTERVAL == 0) merge();
+            }
+        }
+
+        /**
+         * Build the tour of an ant from the depot
+         * @param order the array receiving the order of the vertices
+         * @return the cost of the tour, infinite if the ant is stuck
+         */
+        private double construct(int[] order) {
+            Arrays.fill(visited, 0);
+            visited[0] = 1L;
+            order[0] = 0;
+            int current = 0;
+            double cost = 0;
+            for (int depth = 1; depth < nbVertices; depth++) {
+                int nbCandidates = 0;
+                double total = 0;
+                int best = -1;
+                for (int v = 1; v < nbVertices; v++) {
+                    if (TemplateTSP.isVisited(visited, v) || !costs.arc(current, v) || !precedence.isEligible(v, visited)) continue;
+                    double weight = pheromone[current * nbVertices + v] * heuristic[current * nbVertices + v];
+                    if (best < 0 || weight > weights[best]) best = nbCandidates;
+                    candidates[nbCandidates] = v;
+                    weights[nbCandidates++] = weight;
+                    total += weight;
+                }
+                if (nbCandidates == 0) return Double.POSITIVE_INFINITY;
+                int chosen = best;
+                if (random.nextDouble() >= EXPLOITATION) {
+                    // roulette wheel among the candidates
+                    double draw = random.nextDouble() * total;
+                    chosen = 0;
+                    while (chosen < nbCandidates - 1 && (draw -= weights[chosen]) > 0) chosen++;
+                }
+                int next = candidates[chosen];
+                cost += costs.cost(current, next);
+                visited[next >>> 6] |= 1L << next;
+                order[depth] = next;
+                current = next;
+            }
+            return costs.arc(current, 0) ? cost + costs.cost(current, 0) : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Evaporate the pheromone of the colony and put pheromone on the arcs of a tour, the pheromone staying between
+         * the bounds given by the best known cost
+         * @param order the order of the vertices of the tour
+         * @param cost the cost of the tour
+         */
+        private void update(int[] order, double cost) {
+            double maxPheromone = 1 / (EVAPORATION * incumbent.getCost());
+            double minPheromone = maxPheromone / (2 * nbVertices);
+            for (int k = 0; k < pheromone.length; k++) pheromone[k] = Math.max(minPheromone, (1 - EVAPORATION) * pheromone[k]);
+            for (int k = 0; k < nbVertices; k++) {
+                int arc = order[k] * nbVertices + order[(k + 1) % nbVertices];
+                pheromone[arc] = Math.min(maxPheromone, pheromone[arc] + 1 / cost);
+            }
+        }
+
+        /**
+         * Average the pheromone of the colony with the shared pheromone, row by row, both taking the average
+         */
+        private void merge() {
+            for (int i = 0; i < nbVertices; i++) {
+                int start = i * nbVertices;
+                synchronized (rowLocks[i]) {
+                    for (int k = start; k < start + nbVertices; k++) {
+                        double average = (pheromone[k] + sharedPheromone[k]) / 2;
+                        sharedPheromone[k] = average;
+                        pheromone[k] = average;
+                    }
+                }
+            }
+        }
+    }
+}
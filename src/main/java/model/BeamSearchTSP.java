@@ -0,0 +1,472 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Beam search, a dynamic programming restricted to the best partial tours, for plannings too big for the exact
+ * solvers (about 20 to 100 requests).
+ * The partial tours starting from the depot are built layer by layer, a layer holding the partial tours visiting the
+ * same number of vertices. Each partial tour of a layer is extended by every eligible vertex, so that a pickup is always
+ * visited before its delivery. Like in the dynamic programming, two extensions ending at the same vertex after
+ * visiting the same set of vertices are equivalent, and only the cheapest one is kept. The beam then keeps the
+ * <code>beamWidth</code> best extensions of the layer, ranked by their cost plus a lower bound of the rest of the
+ * tour: the cheapest arc entering each unvisited vertex and the depot from the vertices not visited yet. This bound is
+ * computed once for each partial tour, the time of a layer growing with the beam width times the square of the number
+ * of unvisited vertices.
+ * The extensions of a layer are computed in parallel, each partial tour writing into its own cells, so that the
+ * result doesn't depend on the number of threads. All the arrays are allocated once from the beam width and the number
+ * of vertices, the memory used being known before the search starts. A wider beam gives better tours, and a width
+ * above the number of distinct states of each layer makes the search exact, for a time growing with the width.
+ * A first tour is built by cheapest insertion and published before the beam search, and the best tour of the beam is
+ * improved by local search. If the time limit is reached before the last layer, the best partial tours of the current
+ * layer are completed greedily, each one by the cheapest eligible vertex until every vertex is visited, so that the
+ * work of the beam isn't lost.
+ */
+public class BeamSearchTSP implements TSP {
+
+    /**
+     * The default number of partial tours kept in each layer
+     */
+    public static final int DEFAULT_BEAM_WIDTH = 300;
+
+    /**
+     * The number of partial tours completed greedily when the time limit is reached before the last layer
+     */
+    private static final int COMPLETED_TOURS = 16;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The number of partial tours kept in each layer
+     */
+    private final int beamWidth;
+
+    /**
+     * The best solution found so far
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The cost of the best tour of the beam before local search, completed greedily if the time limit is reached
+     * before the last layer, -1 if the beam has found no tour
+     */
+    private double beamCost = -1;
+
+    /**
+     * Create a search keeping <code>DEFAULT_BEAM_WIDTH</code> partial tours in each layer
+     */
+    public BeamSearchTSP() {
+        this(DEFAULT_BEAM_WIDTH);
+    }
+
+    /**
+     * Create a search with a given beam width
+     * @param beamWidth the number of partial tours kept in each layer
+     * @throws IllegalArgumentException if the beam width isn't positive
+     */
+    public BeamSearchTSP(int beamWidth) {
+        if (beamWidth < 1) throw new IllegalArgumentException("The beam width must be positive, not " + beamWidth);
+        this.beamWidth = beamWidth;
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long deadline = System.currentTimeMillis() + timeLimit;
+        int nbVertices = g.getNbVertices();
+        incumbent = new Incumbent(nbVertices);
+        beamCost = -1;
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        incumbent.seed(g, initialSolution, publisher, deadline);
+        int[] order = nbVertices > 1 ? new Beam(g).run(tour, deadline) : null;
+        if (order != null) {
+            beamCost = LocalSearch.tourCost(g, order);
+            incumbent.offer(order, LocalSearch.improve(g, order, deadline), publisher);
+        }
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Getter for beamWidth attribute.
+     * @return the number of partial tours kept in each layer
+     */
+    public int getBeamWidth() {
+        return beamWidth;
+    }
+
+    /**
+     * Getter for beamCost attribute.
+     * @return the cost of the best tour of the beam before local search, completed greedily if the time limit was
+     * reached before the last layer, -1 if the last search has found no tour
+     */
+    public double getBeamCost() {
+        return beamCost;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
+    }
+
+    /**
+     * Find the k-th smallest value of an array, by quickselect
+     * @param values the values, reordered by the search
+     * @param length the number of values
+     * @param k the rank of the value, from 0
+     * @return the k-th smallest value
+     */
+    private static double nthSmallest(double[] values, int length, int k) {
+        int left = 0;
+        int right = length - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if (i <= j) {
+                    double value = values[i];
+                    values[i++] = values[j];
+                    values[j--] = value;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return values[k];
+        }
+        return values[k];
+    }
+
+    /**
+     * The layers of a beam search on a graph, all its arrays being allocated once
+     */
+    private class Beam {
+
+        /**
+         * The costs of the graph studied
+         */
+        private final CostMatrix costs;
+
+        /**
+         * The precedence constraints between the vertices
+         */
+        private final Precedence precedence;
+
+        /**
+         * The number of vertices of the graph studied
+         */
+        private final int nbVertices;
+
+        /**
+         * The bitset of the visited vertices and the cost of each partial tour of the current layer, and of the next
+         * layer
+         */
+        private long[][] visited, nextVisited;
+        private double[] pathCost, nextPathCost;
+
+        /**
+         * The score of each partial tour of the current layer when it was selected, and of the next layer
+         */
+        private double[] score, nextScore;
+
+        /**
+         * The hash of the visited vertices of each partial tour of the current layer
+         */
+        private final int[] stateHash;
+
+        /**
+         * The cost and the score of each extension of the current layer, the extension of partial tour s by vertex v
+         * being in cell <code>s * nbVertices + v</code>, infinite if the extension isn't possible
+         */
+        private final double[] candidateCost, candidateScore;
+
+        /**
+         * The extensions left once the equivalent ones are removed, and a buffer for their scores
+         */
+        private final int[] survivors;
+        private final double[] survivorScores;
+
+        /**
+         * The open addressing table finding the equivalent extensions, holding indexes in <code>survivors</code>
+         */
+        private final int[] table;
+
+        /**
+         * The last vertex of each partial tour of each layer, and its partial tour in the previous layer
+         */
+        private final int[][] vertex, parent;
+
+        Beam(Graph g) {
+            this.costs = CostMatrix.of(g);
+            this.precedence = g.getPrecedence();
+            this.nbVertices = g.getNbVertices();
+            int nbWords = (nbVertices + 63) >>> 6;
+            this.visited = new long[beamWidth][nbWords];
+            this.nextVisited = new long[beamWidth][nbWords];
+            this.pathCost = new double[beamWidth];
+            this.nextPathCost = new double[beamWidth];
+            this.score = new double[beamWidth];
+            this.nextScore = new double[beamWidth];
+            this.stateHash = new int[beamWidth];
+            int nbCandidates = beamWidth * nbVertices;
+            this.candidateCost = new double[nbCandidates];
+            this.candidateScore = new double[nbCandidates];
+            this.survivors = new int[nbCandidates];
+            this.survivorScores = new double[nbCandidates];
+            this.table = new int[Integer.highestOneBit(Math.max(1, 2 * nbCandidates - 1)) << 1];
+            this.vertex = new int[nbVertices][beamWidth];
+            this.parent = new int[nbVertices][beamWidth];
+        }
+
+        /**
+         * Build the layers until the partial tours visit every vertex
+         * @param tour the tour being computed
+         * @param deadline the time at which the layers stop, the best partial tours being then completed greedily
+         * @return the order of the best tour of the last layer, null if the search has been stopped or if no tour
+         * has been found
+         */
+        int[] run(Tour tour, long deadline) {
+            visited[0][0] = 1L;
+            pathCost[0] = 0;
+            score[0] = 0;
+            stateHash[0] = Arrays.hashCode(visited[0]);
+            int layerSize = 1;
+            for (int depth = 1; depth < nbVertices; depth++) {
+                if (tour.isTourComputed()) return null;
+                if (System.currentTimeMillis() >= deadline) return completeBest(layerSize, depth - 1);
+                int previousDepth = depth - 1;
+                IntStream.range(0, layerSize).parallel().forEach(s -> expand(s, previousDepth));
+                layerSize = select(removeDuplicates(layerSize), depth);
+                if (layerSize == 0) return null;
+            }
+
+            int best = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int s = 0; s < layerSize; s++) {
+                int last = vertex[nbVertices - 1][s];
+                if (costs.arc(last, 0) && pathCost[s] + costs.cost(last, 0) < bestCost) {
+                    bestCost = pathCost[s] + costs.cost(last, 0);
+                    best = s;
+                }
+            }
+            if (best == -1) return null;
+            int[] order = new int[nbVertices];
+            for (int depth = nbVertices - 1; depth > 0; depth--) {
+                order[depth] = vertex[depth][best];
+                best = parent[depth][best];
+            }
+            return order;
+        }
+
+        /**
+         * Complete greedily the partial tours of the current layer with the best scores
+         * @param layerSize the number of partial tours of the current layer
+         * @param depth the depth of the current layer
+         * @return the order of the cheapest completed tour, null if no partial tour can be completed
+         */
+        private int[] completeBest(int layerSize, int depth) {
+            double threshold = Double.POSITIVE_INFINITY;
+            if (layerSize > COMPLETED_TOURS) {
+                System.arraycopy(score, 0, survivorScores, 0, layerSize);
+                threshold = nthSmallest(survivorScores, layerSize, COMPLETED_TOURS - 1);
+            }
+            int[] bestOrder = null;
+            double bestCost = Double.POSITIVE_INFINITY;
+            int[] order = new int[nbVertices];
+            for (int s = 0, nbCompleted = 0; s < layerSize && nbCompleted < COMPLETED_TOURS; s++) {
+                if (score[s] > threshold) continue;
+                nbCompleted++;
+                double cost = complete(s, depth, order);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestOrder = order.clone();
+                }
+            }
+            return bestOrder;
+        }
+
+        /**
+         * Complete a partial tour by visiting the cheapest eligible vertex until every vertex is visited
+         * @param s the index of the partial tour in the current layer
+         * @param depth the depth of the current layer
+         * @param order the array receiving the completed tour
+         * @return the cost of the completed tour, infinite if it can't be completed
+         */
+        private double complete(int s, int depth, int[] order) {
+            for (int d = depth, p = s; d > 0; d--) {
+                order[d] = vertex[d][p];
+                p = parent[d][p];
+            }
+            long[] visitedVertices = visited[s].clone();
+            double cost = pathCost[s];
+            int last = depth == 0 ? 0 : vertex[depth][s];
+            for (int d = depth + 1; d < nbVertices; d++) {
+                int next = -1;
+                for (int v = 1; v < nbVertices; v++) {
+                    if (TemplateTSP.isVisited(visitedVertices, v) || !costs.arc(last, v) || !precedence.isEligible(v, visitedVertices)) continue;
+                    if (next == -1 || costs.cost(last, v) < costs.cost(last, next)) next = v;
+                }
+                if (next == -1) return Double.POSITIVE_INFINITY;
+                cost += costs.cost(last, next);
+                visitedVertices[next >>> 6] |= 1L << next;
+                order[d] = next;
+                last = next;
+            }
+            return costs.arc(last, 0) ? cost + costs.cost(last, 0) : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Compute the cost and the score of every extension of a partial tour.
+         * Every extension enters the depot and the unvisited vertices, except the added vertex, from the last vertex
+         * or an unvisited vertex: the cheapest of these arcs is computed once for each of them, in the cells of the
+         * scores, and the bound of an extension is their sum without the added vertex.
+         * @param s the index of the partial tour in the current layer
+         * @param depth the depth of the current layer
+         */
+        private void expand(int s, int depth) {
+            long[] visitedVertices = visited[s];
+            int last = depth == 0 ? 0 : vertex[depth][s];
+            int offset = s * nbVertices;
+            double bound = 0;
+            int nbUnreachable = 0;
+            int unreachable = -1;
+            for (int u = 0; u < nbVertices; u++) {
+                if (u != 0 && TemplateTSP.isVisited(visitedVertices, u)) continue;
+                double minCost = Double.POSITIVE_INFINITY;
+                for (int w = 0; w < nbVertices; w++) {
+                    if (w == u || (w != last && TemplateTSP.isVisited(visitedVertices, w))) continue;
+                    if (costs.arc(w, u) && precedence.isArcAllowed(w, u) && costs.cost(w, u) < minCost) minCost = costs.cost(w, u);
+                }
+                candidateScore[offset + u] = minCost;
+                if (minCost == Double.POSITIVE_INFINITY) {
+                    nbUnreachable++;
+                    unreachable = u;
+                } else {
+                    bound += minCost;
+                }
+            }
+            candidateCost[offset] = Double.POSITIVE_INFINITY;
+            for (int v = 1; v < nbVertices; v++) {
+                // a vertex other than v can't be reached any more
+                boolean dead = nbUnreachable > 1 || (nbUnreachable == 1 && unreachable != v);
+                if (dead || TemplateTSP.isVisited(visitedVertices, v) || !costs.arc(last, v) || !precedence.isEligible(v, visitedVertices)) {
+                    candidateCost[offset + v] = Double.POSITIVE_INFINITY;
+                    continue;
+                }
+                double cost = pathCost[s] + costs.cost(last, v);
+                candidateCost[offset + v] = cost;
+                candidateScore[offset + v] = nbUnreachable == 0 ? cost + bound - candidateScore[offset + v] : cost + bound;
+            }
+        }
+
+        /**
+         * Keep only the cheapest extension among the extensions ending at the same vertex after visiting the same
+         * vertices
+         * @param layerSize the number of partial tours of the current layer
+         * @return the number of extensions left, listed in <code>survivors</code> in the order of their cells
+         */
+        private int removeDuplicates(int layerSize) {
+            Arrays.fill(table, -1);
+            int mask = table.length - 1;
+            int nbSurvivors = 0;
+            for (int candidate = 0; candidate < layerSize * nbVertices; candidate++) {
+                if (candidateCost[candidate] == Double.POSITIVE_INFINITY) continue;
+                int s = candidate / nbVertices;
+                int v = candidate % nbVertices;
+                int h = (stateHash[s] * 31 + v) * 0x9E3779B9;
+                int slot = (h ^ (h >>> 16)) & mask;
+                while (true) {
+                    int index = table[slot];
+                    if (index == -1) {
+                        table[slot] = nbSurvivors;
+                        survivors[nbSurvivors++] = candidate;
+                        break;
+                    }
+                    int other = survivors[index];
+                    // same last vertex, and same visited vertices before it
+                    if (other % nbVertices == v && Arrays.equals(visited[other / nbVertices], visited[s])) {
+                        if (candidateCost[candidate] < candidateCost[other]) survivors[index] = candidate;
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+            return nbSurvivors;
+        }
+
+        /**
+         * Keep the extensions with the best scores, and make them the next layer
+         * @param nbSurvivors the number of extensions in <code>survivors</code>
+         * @param depth the depth of the next layer
+         * @return the number of partial tours of the next layer
+         */
+        private int select(int nbSurvivors, int depth) {
+            double threshold = Double.POSITIVE_INFINITY;
+            if (nbSurvivors > beamWidth) {
+                for (int k = 0; k < nbSurvivors; k++) survivorScores[k] = candidateScore[survivors[k]];
+                threshold = nthSmallest(survivorScores, nbSurvivors, beamWidth - 1);
+            }
+            int layerSize = 0;
+            // the extensions below the threshold first, then the ties in the order of their cells
+            for (int k = 0; k < nbSurvivors; k++) {
+                if (candidateScore[survivors[k]] < threshold) layerSize = keep(survivors[k], layerSize, depth);
+            }
+            for (int k = 0; k < nbSurvivors && layerSize < beamWidth; k++) {
+                if (candidateScore[survivors[k]] == threshold) layerSize = keep(survivors[k], layerSize, depth);
+            }
+
+            long[][] swapVisited = visited;
+            visited = nextVisited;
+            nextVisited = swapVisited;
+            double[] swap = pathCost;
+            pathCost = nextPathCost;
+            nextPathCost = swap;
+            swap = score;
+            score = nextScore;
+            nextScore = swap;
+            for (int s = 0; s < layerSize; s++) stateHash[s] = Arrays.hashCode(visited[s]);
+            return layerSize;
+        }
+
+        /**
+         * Add an extension to the next layer
+         * @param candidate the cell of the extension
+         * @param index the index of the extension in the next layer
+         * @param depth the depth of the next layer
+         * @return the number of partial tours of the next layer
+         */
+        private int keep(int candidate, int index, int depth) {
+            int s = candidate / nbVertices;
+            int v = candidate % nbVertices;
+            System.arraycopy(visited[s], 0, nextVisited[index], 0, visited[s].length);
+            nextVisited[index][v >>> 6] |= 1L << v;
+            nextPathCost[index] = candidateCost[candidate];
+            nextScore[index] = candidateScore[candidate];
+            vertex[depth][index] = v;
+            parent[depth][index] = s;
+            return index + 1;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * Best-first branch and bound with a memory-capped open list.
+ * The depth-first search of <code>TemplateTSP</code> explores the children of a node one after the other, and may
+ * spend a long time in a bad subtree before it finds a better tour. Here the open nodes of the search tree are kept in
+ * a priority queue and the node with the lowest bound is always expanded first, so that the most promising partial
+ * tours are completed first and the lowest bound of the queue rises towards the optimal cost. The search is over when
+ * this bound reaches the best known cost: the best tour is then optimal.
+ * A node only holds its last vertex, the cost of its path, its bound and a link to its parent, from which the path is
+ * rebuilt when the node is expanded. Two paths ending at the same vertex after visiting the same vertices have the
+ * same completions, so only the cheapest one is kept: the cheapest known cost of each pair of a last vertex and a set
+ * of visited vertices is recorded, and a more expensive path is dropped.
+ * Once the open nodes and the recorded costs fill the memory limit, the popped nodes are explored depth-first by the
+ * sequential search of a <code>TemplateTSP</code> instead of being expanded, so the memory never grows beyond the
+ * limit and the search keeps going in the best-first order of the open nodes. The transposition table of this
+ * depth-first search takes a quarter of the memory limit, the open list the rest.
+ * The bound of the node being expanded is the lowest bound of the open nodes, hence a lower bound of the optimal cost
+ * which rises along the search, and the search stops once the best tour is within the target gap of it.
+ */
+public class BestFirstTSP implements TSP {
+
+    /**
+     * The default memory given to the open list and the transposition table, in bytes
+     */
+    public static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    /**
+     * The estimated memory used by an open node, its share of its ancestors, its cell in the queue and its entry
+     * among the cheapest known costs, in bytes
+     */
+    private static final int NODE_SIZE = 128;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The factory of the sequential solver, which gives the bound, the branching order and the depth-first search
+     */
+    private final Supplier<TemplateTSP> solverFactory;
+
+    /**
+     * The memory given to the open list and the transposition table, in bytes
+     */
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+
+    /**
+     * The best solution found so far
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The number of nodes expanded best-first by the last search
+     */
+    private long nbExpandedNodes;
+
+    /**
+     * The number of nodes explored depth-first by the last search because the open list was full
+     */
+    private long nbDepthFirstNodes;
+
+    /**
+     * The relative gap between the best cost and the lower bound at which the search stops (0 to prove optimality)
+     */
+    private double targetGap;
+
+    /**
+     * Whether the last search has been stopped because its best tour was within the target gap
+     */
+    private boolean targetGapReached;
+
+    /**
+     * The lower bound of the cost of the tours given by the root of the search tree
+     */
+    private volatile double rootLowerBound;
+
+    /**
+     * The lowest bound of the open nodes, infinite once the search is over
+     */
+    private volatile double openBound;
+
+    /**
+     * Create a best-first search
+     * @param solverFactory the factory of the sequential solver, which gives the bound and the branching order
+     */
+    public BestFirstTSP(Supplier<TemplateTSP> solverFactory) {
+        this.solverFactory = solverFactory;
+    }
+
+    /**
+     * Limit the memory of the open list and of the transposition table, beyond which the nodes are explored depth-first
+     * @param bytes the memory given to the open list and the transposition table, in bytes
+     */
+    public void setMemoryLimit(long bytes) {
+        this.memoryLimit = bytes;
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long startTime = System.currentTimeMillis();
+        int nbVertices = g.getNbVertices();
+        CostMatrix costs = CostMatrix.of(g);
+        incumbent = new Incumbent(nbVertices);
+        nbExpandedNodes = 0;
+        nbDepthFirstNodes = 0;
+        targetGapReached = false;
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        TemplateTSP worker = solverFactory.get();
+        long tableSize = memoryLimit / 4;
+        worker.setTranspositionTableSize(tableSize);
+        worker.prepare(g, incumbent, publisher, startTime, startTime + timeLimit);
+        int[] prefix = new int[nbVertices];
+        rootLowerBound = worker.evaluate(prefix, 1, 0);
+        openBound = rootLowerBound;
+        worker.setRootLowerBound(rootLowerBound);
+        worker.setTargetGap(targetGap);
+        worker.setInitialSolution(initialSolution);
+        worker.seed(tour);
+
+        long maxOpenNodes = Math.max(1, (memoryLimit - tableSize) / NODE_SIZE);
+        int[] children = new int[nbVertices];
+        long[] visited = new long[(nbVertices + 63) >>> 6];
+        PriorityQueue<PartialTour> open = new PriorityQueue<>();
+        HashMap<VisitedState, Double> cheapestCosts = new HashMap<>();
+        open.add(new PartialTour(null, 0, 1, 0, rootLowerBound));
+        while (!open.isEmpty() && !tour.isTourComputed() && !worker.isTimeLimitReached()) {
+            PartialTour node = open.poll();
+            // every open node is at least as expensive: the best tour is optimal
+            if (node.bound >= incumbent.getCost()) break;
+            openBound = Math.max(openBound, node.bound);
+            double bestCost = incumbent.getCost();
+            if (worker.isTargetGapReached() || (targetGap > 0 && bestCost - openBound <= targetGap * bestCost)) {
+                targetGapReached = true;
+                break;
+            }
+            node.fill(prefix);
+            Arrays.fill(visited, 0);
+            for (int i = 0; i < node.length; i++) visited[prefix[i] >>> 6] |= 1L << prefix[i];
+            Double cheapestCost = cheapestCosts.get(new VisitedState(visited, node.vertex));
+            if (cheapestCost != null && node.cost > cheapestCost) continue;
+            if (node.length == nbVertices || open.size() + cheapestCosts.size() >= maxOpenNodes) {
+                nbDepthFirstNodes++;
+                worker.search(prefix, node.length, node.cost, tour);
+                continue;
+            }
+            nbExpandedNodes++;
+            int nbChildren = worker.expand(prefix, node.length, node.cost, children);
+            for (int i = 0; i < nbChildren; i++) {
+                int child = children[i];
+                double cost = node.cost + costs.cost(node.vertex, child);
+                long[] childVisited = visited.clone();
+                childVisited[child >>> 6] |= 1L << child;
+                VisitedState state = new VisitedState(childVisited, child);
+                cheapestCost = cheapestCosts.get(state);
+                if (cheapestCost != null && cost >= cheapestCost) continue;
+                prefix[node.length] = child;
+                double bound = worker.evaluate(prefix, node.length + 1, cost);
+                if (bound < incumbent.getCost()) {
+                    open.add(new PartialTour(node, child, node.length + 1, cost, bound));
+                    cheapestCosts.put(state, cost);
+                }
+            }
+        }
+        if (!targetGapReached && !tour.isTourComputed() && !worker.isTimeLimitReached()) openBound = Double.POSITIVE_INFINITY;
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    @Override
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Getter for targetGapReached attribute.
+     * @return whether the last search has been stopped because its best tour was within the target gap
+     */
+    public boolean isTargetGapReached() {
+        return targetGapReached;
+    }
+
+    @Override
+    public double getLowerBound() {
+        if (incumbent == null) return -1;
+        return Math.max(rootLowerBound, Math.min(incumbent.getCost(), openBound));
+    }
+
+    /**
+     * Getter for nbExpandedNodes attribute.
+     * @return the number of nodes expanded best-first by the last search
+     */
+    public long getNbExpandedNodes() {
+        return nbExpandedNodes;
+    }
+
+    /**
+     * Getter for nbDepthFirstNodes attribute.
+     * @return the number of nodes explored depth-first by the last search because the open list was full
+     */
+    public long getNbDepthFirstNodes() {
+        return nbDepthFirstNodes;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
+    }
+
+    /**
+     * The last vertex of a path and the set of its vertices, which determine the completions of the path
+     */
+    private static class VisitedState {
+
+        /**
+         * The bitset of the vertices of the path
+         */
+        private final long[] visited;
+
+        /**
+         * The last vertex of the path
+         */
+        private final int last;
+
+        VisitedState(long[] visited, int last) {
+            this.visited = visited;
+            this.last = last;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof VisitedState)) return false;
+            VisitedState other = (VisitedState) o;
+            return last == other.last && Arrays.equals(visited, other.visited);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(visited) + last;
+        }
+    }
+
+    /**
+     * An open node of the search tree: a path from vertex 0, stored as its last vertex and a link to the path
+     * without it
+     */
+    private static class PartialTour implements Comparable<PartialTour> {
+
+        /**
+         * The node of the path without its last vertex, null for vertex 0
+         */
+        private final PartialTour parent;
+
+        /**
+         * The last vertex of the path
+         */
+        private final int vertex;
+
+        /**
+         * The number of vertices of the path
+         */
+        private final int length;
+
+        /**
+         * The cost of the path
+         */
+        private final double cost;
+
+        /**
+         * A lower bound of the cost of the tours starting with the path
+         */
+        private final double bound;
+
+        PartialTour(PartialTour parent, int vertex, int length, double cost, double bound) {
+            this.parent = parent;
+            this.vertex = vertex;
+            this.length = length;
+            this.cost = cost;
+            this.bound = bound;
+        }
+
+        /**
+         * Write the path in an array
+         * @param prefix the array receiving the path in its <code>length</code> first cells
+         */
+        void fill(int[] prefix) {
+            for (PartialTour node = this; node != null; node = node.parent) prefix[node.length - 1] = node.vertex;
+        }
+
+        /**
+         * The lowest bound first, and the longest path among equal bounds, which is closer to a complete tour
+         */
+        @Override
+        public int compareTo(PartialTour other) {
+            int comparison = Double.compare(bound, other.bound);
+            return comparison != 0 ? comparison : Integer.compare(other.length, length);
+        }
+    }
+}
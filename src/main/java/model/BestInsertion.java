@@ -0,0 +1,241 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The cheapest place of a new request in a computed tour.
+ * The tour visits the stops s0 (the depot), s1, ..., sm and comes back to the depot. The pickup is inserted after a
+ * stop si and the delivery after a stop sj with j &ge; i, right after the pickup when j = i, so that the pickup is
+ * always visited first. The additional length of every pair of positions only needs the distances between the new
+ * addresses and the stops, which are given by four searches whatever the size of the tour: Dijkstra from the pickup
+ * and from the delivery to every stop (one-to-many), and Dijkstra on the reversed map from every stop to the pickup
+ * and to the delivery (many-to-one). The lengths of the paths between consecutive stops are already known by the tour.
+ * Each address is searched once even if several stops are there (the depot at both ends of the tour, requests at the
+ * same address), so that the searches stop as soon as every stop is settled. The O(m²) pairs are evaluated in
+ * parallel on long tours only, one pickup position per task, and the shortest paths found by the searches are then
+ * given to the tour for the insertion, so that no other search is needed.
+ */
+public class BestInsertion {
+
+    /**
+     * The number of stops from which the pairs of positions are evaluated in parallel, below which the tasks would
+     * cost more than the evaluation
+     */
+    static final int PARALLEL_THRESHOLD = 1000;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The tour where the request is inserted
+     */
+    private final Tour tour;
+
+    /**
+     * The request to insert
+     */
+    private final Request request;
+
+    /**
+     * The list with all intersections of the map
+     */
+    private final List<Intersection> allIntersections;
+
+    /**
+     * The shortest paths from the pickup address to the stops and to the delivery address, by end address
+     */
+    private final IdentityHashMap<Intersection, ShortestPath> fromPickup = new IdentityHashMap<>();
+
+    /**
+     * The shortest paths from the delivery address to the stops, by end address
+     */
+    private final IdentityHashMap<Intersection, ShortestPath> fromDelivery = new IdentityHashMap<>();
+
+    /**
+     * The shortest paths from the stops to the pickup address, by start address
+     */
+    private final IdentityHashMap<Intersection, ShortestPath> toPickup = new IdentityHashMap<>();
+
+    /**
+     * The shortest paths from the stops to the delivery address, by start address
+     */
+    private final IdentityHashMap<Intersection, ShortestPath> toDelivery = new IdentityHashMap<>();
+
+    /**
+     * The index of the stop after which the pickup is inserted
+     */
+    private int pickupPosition;
+
+    /**
+     * The index of the stop after which the delivery is inserted
+     */
+    private int deliveryPosition;
+
+    /**
+     * The additional length of the tour, infinite if the new addresses can't be reached
+     */
+    private double additionalLength;
+
+    /**
+     * Find the cheapest place of a new request in a computed tour
+     * @param tour the computed tour
+     * @param request the request to insert, not in the planning yet
+     * @param allIntersections the list with all intersections of the map
+     */
+    public BestInsertion(Tour tour, Request request, List<Intersection> allIntersections) {
+        this(tour, request, allIntersections, 0);
+    }
+
+    /**
+     * Find the cheapest place of a new request in a computed tour, after the stops already visited by the courier
+     * @param tour the computed tour
+     * @param request the request to insert, not in the planning yet
+     * @param allIntersections the list with all intersections of the map
+     * @param firstPosition the index of the first stop after which the pickup may be inserted, the stop where the
+     *                      courier is (0 for the depot before the departure)
+     */
+    public BestInsertion(Tour tour, Request request, List<Intersection> allIntersections, int firstPosition) {
+        this.tour = tour;
+        this.request = request;
+        this.allIntersections = allIntersections;
+        ArrayList<ShortestPath> paths = tour.getListShortestPaths();
+        int nbStops = paths.size();
+        Intersection pickup = request.getPickupAddress();
+        Intersection delivery = request.getDeliveryAddress();
+
+        // stops[k] is the start of path k, the depot at the end of the last path is stops[nbStops]
+        Intersection[] stops = new Intersection[nbStops + 1];
+        double[] pathLength = new double[nbStops];
+        for (int k = 0; k < nbStops; k++) {
+            stops[k] = paths.get(k).getStartAddress();
+            pathLength[k] = paths.get(k).getPathLength();
+        }
+        stops[nbStops] = nbStops > 0 ? paths.get(nbStops - 1).getEndAddress() : tour.getDepotAddress();
+        ArrayList<Intersection> stopList = distinct(List.of(stops), allIntersections.size());
+        ArrayList<Intersection> pickupEnds = new ArrayList<>(stopList);
+        pickupEnds.add(delivery);
+        pickupEnds = distinct(pickupEnds, allIntersections.size());
+
+        // four searches, whatever the number of stops
+        for (ShortestPath path : Dijkstra.compute(allIntersections, pickupEnds, pickup)) fromPickup.put(path.getEndAddress(), path);
+        for (ShortestPath path : Dijkstra.compute(allIntersections, stopList, delivery)) fromDelivery.put(path.getEndAddress(), path);
+        for (ShortestPath path : Dijkstra.computeReverse(allIntersections, stopList, pickup)) toPickup.put(path.getStartAddress(), path);
+        for (ShortestPath path : Dijkstra.computeReverse(allIntersections, stopList, delivery)) toDelivery.put(path.getStartAddress(), path);
+
+        double[] stopToPickup = new double[nbStops + 1];
+        double[] pickupToStop = new double[nbStops + 1];
+        double[] stopToDelivery = new double[nbStops + 1];
+        double[] deliveryToStop = new double[nbStops + 1];
+        for (int k = 0; k <= nbStops; k++) {
+            stopToPickup[k] = length(toPickup.get(stops[k]));
+            pickupToStop[k] = length(fromPickup.get(stops[k]));
+            stopToDelivery[k] = length(toDelivery.get(stops[k]));
+            deliveryToStop[k] = length(fromDelivery.get(stops[k]));
+        }
+        double pickupToDelivery = length(fromPickup.get(delivery));
+
+        // the best delivery position for each pickup position, computed in parallel on long tours
+        int firstPickupPosition = Math.max(0, Math.min(firstPosition, nbStops - 1));
+        IntStream pickupPositions = IntStream.range(firstPickupPosition, Math.max(nbStops, 1));
+        if (nbStops >= PARALLEL_THRESHOLD) pickupPositions = pickupPositions.parallel();
+        double[] best = pickupPositions.mapToObj(i -> {
+            double[] bestForPickup = {Double.POSITIVE_INFINITY, i, i};
+            if (nbStops == 0) return bestForPickup;
+            double pickupCost = stopToPickup[i] - pathLength[i];
+            for (int j = i; j < nbStops; j++) {
+                double cost = j == i
+                        ? pickupCost + pickupToDelivery + deliveryToStop[i + 1]
+                        : pickupCost + pickupToStop[i + 1] + stopToDelivery[j] + deliveryToStop[j + 1] - pathLength[j];
+                if (cost < bestForPickup[0]) {
+                    bestForPickup[0] = cost;
+                    bestForPickup[2] = j;
+                }
+            }
+            return bestForPickup;
+        }).reduce((a, b) -> b[0] < a[0] ? b : a).get();
+
+        if (best[0] < Double.POSITIVE_INFINITY) {
+            additionalLength = best[0];
+            pickupPosition = (int) best[1];
+            deliveryPosition = (int) best[2];
+        } else {
+            // unreachable addresses: the request goes at the end of the tour, as before
+            additionalLength = Double.POSITIVE_INFINITY;
+            pickupPosition = Math.max(nbStops - 1, 0);
+            deliveryPosition = pickupPosition;
+        }
+    }
+
+    /**
+     * @param addresses a list of addresses, some of them several times
+     * @param nbIntersections the number of intersections of the map
+     * @return the addresses without the repeated ones, in the same order
+     */
+    private static ArrayList<Intersection> distinct(List<Intersection> addresses, int nbIntersections) {
+        ArrayList<Intersection> distinctAddresses = new ArrayList<>();
+        boolean[] seen = new boolean[nbIntersections];
+        for (Intersection address : addresses) {
+            if (!seen[(int) address.getId()]) {
+                seen[(int) address.getId()] = true;
+                distinctAddresses.add(address);
+            }
+        }
+        return distinctAddresses;
+    }
+
+    /**
+     * @param path a shortest path, or null
+     * @return the length of the path, infinite if there is no path
+     */
+    private static double length(ShortestPath path) {
+        return path != null ? path.getPathLength() : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Insert the request in the tour at its cheapest place, as the last request of the planning
+     */
+    public void insert() {
+        tour.insertRequest(tour.getPlanningRequests().size(), getIndexShortestPathToPickup(), getIndexShortestPathToDelivery(), request, this::getShortestPath);
+    }
+
+    /**
+     * Give a new shortest path between the new addresses and the stops, as found by the searches
+     * @param start the start address of the path
+     * @param end the end address of the path
+     * @return a copy of the shortest path, which the tour may modify, or a path computed by Dijkstra if the searches
+     * didn't find it
+     */
+    public ShortestPath getShortestPath(Intersection start, Intersection end) {
+        ShortestPath path = null;
+        if (start == request.getPickupAddress()) path = fromPickup.get(end);
+        if (path == null && start == request.getDeliveryAddress()) path = fromDelivery.get(end);
+        if (path == null && end == request.getPickupAddress()) path = toPickup.get(start);
+        if (path == null && end == request.getDeliveryAddress()) path = toDelivery.get(start);
+        if (path == null) return Dijkstra.compute(allIntersections, new ArrayList<>(List.of(end)), start).get(0);
+        return new ShortestPath(path.getPathLength(), new ArrayList<>(path.getListSegments()), start, end);
+    }
+
+    /**
+     * @return the index of the shortest path arriving at the pickup address once the request is inserted
+     */
+    public int getIndexShortestPathToPickup() {
+        return pickupPosition;
+    }
+
+    /**
+     * @return the index of the shortest path arriving at the delivery address once the request is inserted
+     */
+    public int getIndexShortestPathToDelivery() {
+        return deliveryPosition + 1;
+    }
+
+    /**
+     * Getter for additionalLength attribute.
+     * @return the additional length of the tour, infinite if the new addresses can't be reached
+     */
+    public double getAdditionalLength() {
+        return additionalLength;
+    }
+}
@@ -0,0 +1,56 @@
+package model;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A reusable iterator over the candidate successors of a vertex during the branch and bound.
+ * One instance is allocated per depth of the search tree and refilled with <code>reset</code> at every node,
+ * so that the search does not allocate nor box any vertex.
+ */
+public abstract class CandidateIterator implements PrimitiveIterator.OfInt {
+
+    /* ATTRIBUTES */
+
+    /**
+     * The vertices the current vertex can reach
+     */
+    protected final int[] candidates;
+
+    /**
+     * The number of candidates remaining
+     */
+    protected int nbCandidates;
+
+    /**
+     * Create an iterator able to hold every vertex of a graph
+     * @param nbVertices the number of vertices of the graph
+     */
+    protected CandidateIterator(int nbVertices) {
+        this.candidates = new int[nbVertices];
+    }
+
+    /**
+     * Fill the iterator with the vertices in <code>unvisited</code> which are successors of <code>currentVertex</code>
+     * in <code>costs</code>. A vertex is only a candidate once its predecessors in the precedence constraints of
+     * <code>costs</code> have been visited.
+     * @param currentVertex the current vertex
+     * @param unvisited the unvisited vertices (only the <code>nbUnvisited</code> first cells are meaningful)
+     * @param nbUnvisited the number of unvisited vertices
+     * @param visited the bitset of visited vertices
+     * @param costs the cost matrix of the graph, built once by the search
+     */
+    public abstract void reset(int currentVertex, int[] unvisited, int nbUnvisited, long[] visited, CostMatrix costs);
+
+    @Override
+    public boolean hasNext() {
+        return nbCandidates > 0;
+    }
+
+    @Override
+    public int nextInt() {
+        if (nbCandidates == 0) throw new NoSuchElementException();
+        return candidates[--nbCandidates];
+    }
+
+}
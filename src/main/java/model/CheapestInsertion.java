@@ -0,0 +1,97 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Construction of a tour by cheapest insertion of the requests.
+ * Vertex 0 is the depot, vertices <code>2r+1</code> and <code>2r+2</code> are the pickup and the delivery of request r.
+ * The requests are inserted one after the other, the farthest from the depot first, each at the pair of positions
+ * (pickup before delivery) which increases the least the cost of the tour.
+ */
+public class CheapestInsertion {
+
+    /**
+     * Build a tour of every vertex of a graph
+     * @param g the graph with all the costs
+     * @return the order of the vertices starting from vertex 0, or null if a request can't be inserted or if the
+     * precedence constraints aren't one pickup before each delivery
+     */
+    public static int[] compute(Graph g) {
+        if (!g.getPrecedence().isPickupDelivery()) return null;
+        int nbVertices = g.getNbVertices();
+        int nbRequests = (nbVertices - 1) / 2;
+        Integer[] requests = IntStream.range(0, nbRequests).boxed().toArray(Integer[]::new);
+        Arrays.sort(requests, Comparator.comparingDouble(
+                (Integer r) -> arcCost(g, 0, 2 * r + 1) + arcCost(g, 2 * r + 2, 0)).reversed());
+
+        int[] order = new int[nbVertices];
+        int length = 1;
+        for (int r : requests) {
+            length = insert(g, order, length, 2 * r + 1, 2 * r + 2);
+            if (length < 0) return null;
+        }
+        return length == nbVertices ? order : null;
+    }
+
+    /**
+     * Insert a pickup and its delivery in a partial tour, at the cheapest pair of positions
+     * @param g the graph with all the costs
+     * @param order the partial tour starting from vertex 0, big enough to receive the two vertices
+     * @param length the number of vertices of the partial tour
+     * @param pickup the pickup to insert
+     * @param delivery the delivery to insert
+     * @return the new number of vertices of the tour, or -1 if there is no valid insertion
+     */
+    public static int insert(Graph g, int[] order, int length, int pickup, int delivery) {
+        double bestDelta = Double.POSITIVE_INFINITY;
+        int bestPickupPosition = -1;
+        int bestDeliveryPosition = -1;
+        // cheapest insertion of the pickup after one of the vertices already scanned
+        double bestPickupDelta = Double.POSITIVE_INFINITY;
+        int bestPickupIndex = -1;
+        for (int i = 0; i < length; i++) {
+            int a = order[i];
+            int b = i + 1 < length ? order[i + 1] : 0;
+            double removed = arcCost(g, a, b);
+            // pickup and delivery both inserted between a and b
+            double delta = arcCost(g, a, pickup) + arcCost(g, pickup, delivery) + arcCost(g, delivery, b) - removed;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestPickupPosition = i;
+                bestDeliveryPosition = i;
+            }
+            // delivery inserted between a and b, pickup earlier
+            delta = bestPickupDelta + arcCost(g, a, delivery) + arcCost(g, delivery, b) - removed;
+            if (delta < bestDelta) {
+                bestDelta = delta;
+                bestPickupPosition = bestPickupIndex;
+                bestDeliveryPosition = i;
+            }
+            double pickupDelta = arcCost(g, a, pickup) + arcCost(g, pickup, b) - removed;
+            if (pickupDelta < bestPickupDelta) {
+                bestPickupDelta = pickupDelta;
+                bestPickupIndex = i;
+            }
+        }
+        if (bestDelta == Double.POSITIVE_INFINITY) return -1;
+
+        // shift the vertices after the delivery position by two, and those between the two positions by one
+        System.arraycopy(order, bestDeliveryPosition + 1, order, bestDeliveryPosition + 3, length - bestDeliveryPosition - 1);
+        System.arraycopy(order, bestPickupPosition + 1, order, bestPickupPosition + 2, bestDeliveryPosition - bestPickupPosition);
+        order[bestPickupPosition + 1] = pickup;
+        order[bestDeliveryPosition + 2] = delivery;
+        return length + 2;
+    }
+
+    /**
+     * @param g the graph with all the costs
+     * @param i origin vertex
+     * @param j end vertex
+     * @return the cost of the arc, infinite if there is no arc
+     */
+    static double arcCost(Graph g, int i, int j) {
+        return g.isArc(i, j) ? g.getCost(i, j) : Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,212 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A complete graph where the vertices on the same intersection are merged into super-nodes.
+ * Several pickups and deliveries of a planning may share an intersection: the arcs between them cost nothing, and a
+ * branch and bound would explore every order of these vertices, with the same cost. Since the costs are shortest path
+ * lengths, a tour never gets longer when a vertex is moved next to a vertex of the same intersection, as long as the
+ * precedence constraints still hold. The vertices of an intersection are therefore merged when this is always possible:
+ * <ul>
+ *     <li>the largest set of vertices whose predecessors are all in the set (they can all be visited when the first of
+ *     them is visited)</li>
+ *     <li>then among the remaining vertices, the largest set of vertices whose successors are all in the set (they
+ *     can all be visited when the last of them is visited)</li>
+ * </ul>
+ * The vertices on the intersection of the depot are merged with the depot in the same way: the first set is visited
+ * when leaving the depot, the second one when coming back. A super-node has the predecessors of its vertices which
+ * are outside of it, so the precedence constraints between super-nodes stay acyclic.
+ * The solvers work on the collapsed graph, and its orders are expanded back to the vertices of the tour, a super-node
+ * giving its vertices in an order respecting their own precedence constraints, before being published. The service
+ * durations of the merged vertices are then added one after the other when the times of the tour are computed.
+ */
+public class CollapsedGraph extends CompleteGraph {
+
+    /* ATTRIBUTES */
+
+    /**
+     * The nodes of the tour before the collapsing
+     */
+    private final ArrayList<Node> tourNodes;
+
+    /**
+     * The vertices of the tour merged in each vertex of the collapsed graph, in visiting order. Vertex 0 holds the
+     * vertices visited when leaving the depot, without the depot itself.
+     */
+    private final int[][] members;
+
+    /**
+     * The vertices of the tour visited when coming back to the depot
+     */
+    private final int[] lastMembers;
+
+    /**
+     * Create a collapsed graph
+     * @param listNodes the nodes of the collapsed graph
+     * @param precedence the precedence constraints between the nodes of the collapsed graph
+     * @param tourNodes the nodes of the tour
+     * @param members the vertices of the tour merged in each vertex of the collapsed graph
+     * @param lastMembers the vertices of the tour visited when coming back to the depot
+     */
+    private CollapsedGraph(ArrayList<Node> listNodes, Precedence precedence, ArrayList<Node> tourNodes, int[][] members, int[] lastMembers) {
+        super(listNodes, precedence);
+        this.tourNodes = tourNodes;
+        this.members = members;
+        this.lastMembers = lastMembers;
+    }
+
+    /**
+     * Merge the vertices of a graph which are on the same intersection
+     * @param g the graph of a tour
+     * @return the collapsed graph, or <code>g</code> itself if no vertex can be merged
+     */
+    public static CompleteGraph collapse(CompleteGraph g) {
+        int nbVertices = g.getNbVertices();
+        Precedence precedence = g.getPrecedence();
+        // group the vertices by intersection, the depot first
+        ArrayList<ArrayList<Integer>> groups = new ArrayList<>();
+        for (int v = 0; v < nbVertices; v++) {
+            Intersection intersection = g.listNodesGraph.get(v).getIntersection();
+            int k = 0;
+            while (k < groups.size() && g.listNodesGraph.get(groups.get(k).get(0)).getIntersection() != intersection) k++;
+            if (k == groups.size()) groups.add(new ArrayList<>());
+            groups.get(k).add(v);
+        }
+
+        // split each group into the vertices merged first, last, and alone
+        ArrayList<int[]> collapsedMembers = new ArrayList<>();
+        int[] lastMembers = new int[0];
+        boolean merged = false;
+        for (ArrayList<Integer> vertices : groups) {
+            boolean isDepot = vertices.get(0) == 0;
+            boolean[] remaining = new boolean[nbVertices];
+            for (int v : vertices) if (v != 0) remaining[v] = true;
+            int[] first = closedSet(precedence, remaining, true);
+            if (!isDepot && first.length < 2) first = new int[0];
+            for (int v : first) remaining[v] = false;
+            int[] last = closedSet(precedence, remaining, false);
+            if (!isDepot && last.length < 2) last = new int[0];
+            for (int v : last) remaining[v] = false;
+            if (isDepot) {
+                collapsedMembers.add(0, first);
+                lastMembers = last;
+                merged |= first.length + last.length > 0;
+            } else {
+                if (first.length > 0) collapsedMembers.add(first);
+                if (last.length > 0) collapsedMembers.add(last);
+                merged |= first.length + last.length > 0;
+            }
+            for (int v : vertices) if (remaining[v]) collapsedMembers.add(new int[]{v});
+        }
+        if (!merged) return g;
+
+        // build the nodes and the precedence constraints of the collapsed graph
+        int nbCollapsed = collapsedMembers.size();
+        int[] collapsedVertex = new int[nbVertices];
+        for (int v : lastMembers) collapsedVertex[v] = 0;
+        ArrayList<Node> listNodes = new ArrayList<>();
+        for (int c = 0; c < nbCollapsed; c++) {
+            for (int v : collapsedMembers.get(c)) collapsedVertex[v] = c;
+            // the shortest paths of a node are the ones of the vertices on its intersection
+            ArrayList<ShortestPath> arcs = new ArrayList<>();
+            if (c == 0) {
+                arcs.addAll(g.listNodesGraph.get(0).getListArcs());
+                for (int v : lastMembers) arcs.addAll(g.listNodesGraph.get(v).getListArcs());
+            }
+            for (int v : collapsedMembers.get(c)) arcs.addAll(g.listNodesGraph.get(v).getListArcs());
+            Intersection intersection = g.listNodesGraph.get(c == 0 ? 0 : collapsedMembers.get(c)[0]).getIntersection();
+            listNodes.add(new Node(intersection, arcs));
+        }
+        Precedence collapsedPrecedence = new Precedence(nbCollapsed);
+        for (int v = 1; v < nbVertices; v++) {
+            for (int predecessor : precedence.getPredecessors(v)) {
+                int before = collapsedVertex[predecessor];
+                int after = collapsedVertex[v];
+                if (before != after && before != 0 && after != 0) collapsedPrecedence.add(before, after);
+            }
+        }
+        return new CollapsedGraph(listNodes, collapsedPrecedence, g.listNodesGraph,
+                collapsedMembers.toArray(new int[0][]), lastMembers);
+    }
+
+    /**
+     * Find the largest subset of some vertices closed under their predecessors (or successors), in an order
+     * respecting the precedence constraints between them
+     * @param precedence the precedence constraints
+     * @param candidates the vertices among which the subset is chosen
+     * @param predecessors whether the subset is closed under the predecessors, otherwise under the successors
+     * @return the vertices of the subset
+     */
+    private static int[] closedSet(Precedence precedence, boolean[] candidates, boolean predecessors) {
+        boolean[] inSet = candidates.clone();
+        // remove the vertices with a constraint outside of the set until there are none
+        boolean removed = true;
+        while (removed) {
+            removed = false;
+            for (int v = 0; v < inSet.length; v++) {
+                if (!inSet[v]) continue;
+                for (int w : predecessors ? precedence.getPredecessors(v) : precedence.getSuccessors(v)) {
+                    if (!inSet[w]) {
+                        inSet[v] = false;
+                        removed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        // order the set so that every vertex comes after its predecessors in the set
+        int[] set = new int[inSet.length];
+        int size = 0;
+        boolean[] placed = new boolean[inSet.length];
+        boolean added = true;
+        while (added) {
+            added = false;
+            for (int v = 0; v < inSet.length; v++) {
+                if (!inSet[v] || placed[v]) continue;
+                boolean ready = true;
+                for (int p : precedence.getPredecessors(v)) ready &= !inSet[p] || placed[p];
+                if (ready) {
+                    set[size++] = v;
+                    placed[v] = true;
+                    added = true;
+                }
+            }
+        }
+        return Arrays.copyOf(set, size);
+    }
+
+    /**
+     * Getter for tourNodes attribute.
+     * @return the nodes of the tour before the collapsing
+     */
+    @Override
+    public ArrayList<Node> getTourNodes() {
+        return tourNodes;
+    }
+
+    /**
+     * Expand an order of the vertices of the collapsed graph into an order of the vertices of the tour
+     * @param order the order of the vertices of the collapsed graph, starting from vertex 0
+     * @return the order of the vertices of the tour, starting from vertex 0
+     */
+    @Override
+    public int[] expandOrder(int[] order) {
+        int[] tourOrder = new int[tourNodes.size()];
+        int length = 1;
+        for (int vertex : order) {
+            for (int member : members[vertex]) tourOrder[length++] = member;
+        }
+        for (int member : lastMembers) tourOrder[length++] = member;
+        return tourOrder;
+    }
+
+    /**
+     * @param vertex a vertex of the collapsed graph
+     * @return the vertices of the tour merged in <code>vertex</code> (must not be modified)
+     */
+    public int[] getMembers(int vertex) {
+        return members[vertex];
+    }
+}
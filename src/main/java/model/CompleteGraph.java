@@ -22,27 +22,44 @@ public class CompleteGraph implements Graph {
     /**
      * The cost of travel between two nodes in each direction. -1 if the travel isn't possible
      */
-    final double[][] cost;
+    final CostMatrix cost;
 
     /**
-     * Create a complete directed graph such that each edge has a weight according to the cost of each arc
-     * @param listNodes the list of nodes
+     * The precedence constraints between the vertices
+     */
+    final Precedence precedence;
+
+    /**
+     * Create a complete directed graph such that each edge has a weight according to the cost of each arc, each
+     * pickup being visited before its delivery
+     * @param listNodes the list of nodes: the depot, then the pickup and the delivery of each request
      */
     public CompleteGraph(ArrayList<Node> listNodes){
+        this(listNodes, Precedence.pickupDelivery(listNodes.size()));
+    }
+
+    /**
+     * Create a complete directed graph such that each edge has a weight according to the cost of each arc
+     * @param listNodes the list of nodes, the first one being the depot
+     * @param precedence the precedence constraints between the nodes, which must not change afterwards
+     */
+    public CompleteGraph(ArrayList<Node> listNodes, Precedence precedence){
         this.listNodesGraph=listNodes;
+        this.precedence = precedence;
         /*
           The tour object to verify if the path are possible
          */
         this.nbVertices = listNodesGraph.size();
-        cost = new double[nbVertices][nbVertices];
+        double[] costs = new double[nbVertices * nbVertices];
         for (int i=0; i<nbVertices; i++){
             for (int j=0; j<nbVertices; j++){
-                if (i == j || (i%2==0 && i==j+1) || (i==0 && j%2==0) || (j==0 && i%2==1)) cost[i][j] = -1;
+                if (i == j || !precedence.isArcAllowed(i, j)) costs[i * nbVertices + j] = -1;
                 else {
-                    cost[i][j] = getCostArc(i,j);
+                    costs[i * nbVertices + j] = getCostArc(i,j);
                 }
             }
         }
+        cost = new CostMatrix(nbVertices, costs, precedence);
     }
 
     /**
@@ -70,14 +87,50 @@ public class CompleteGraph implements Graph {
 
     @Override
     public double getCost(int i, int j) {
-        if (i<0 || i>=nbVertices || j<0 || j>=nbVertices)
-            return -1;
-        return cost[i][j];
+        return cost.getCost(i, j);
+    }
+
+    /**
+     * Getter for cost attribute.
+     * @return the costs of the graph in a single array, for the inner loops of the solvers
+     */
+    public CostMatrix getCostMatrix() {
+        return cost;
+    }
+
+    /**
+     * Get the successors of a vertex from the nearest to the farthest, computed once with the graph
+     * @param i the vertex
+     * @return the vertices j such that there is an arc from i to j, sorted by ascending cost (must not be modified)
+     */
+    public int[] getSortedSuccessors(int i) {
+        return cost.getSortedSuccessors(i);
+    }
+
+    /**
+     * @return the nodes of the tour, numbered as the vertices of the orders given by <code>expandOrder</code>
+     */
+    public ArrayList<Node> getTourNodes() {
+        return listNodesGraph;
+    }
+
+    /**
+     * Convert an order of the vertices of the graph into an order of the nodes of the tour
+     * @param order the order of the vertices, starting from vertex 0
+     * @return the order of the nodes of the tour, the same as <code>order</code> as each vertex is a node of the tour
+     */
+    public int[] expandOrder(int[] order) {
+        return order;
+    }
+
+    @Override
+    public Precedence getPrecedence() {
+        return precedence;
     }
 
     @Override
     public boolean isArc(int i, int j) {
-        return !(i<0 || i>=nbVertices || j<0 || j>=nbVertices || cost[i][j]==-1);
+        return cost.isArc(i, j);
     }
 
 
@@ -0,0 +1,136 @@
+package model;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * The costs of a graph in a single array, for the inner loops of the solvers.
+ * The cost of the arc from i to j is in the cell <code>i * nbVertices + j</code> of a row-major array, and the
+ * existence of the arc in the same bit of a bitset. The class is final and the solvers hold it with its own type, so
+ * that the JIT compiles the unchecked accessors <code>cost</code> and <code>arc</code> to plain array loads, without
+ * the bounds comparisons of <code>getCost</code> and <code>isArc</code> nor a call through the <code>Graph</code>
+ * interface. The vertices given to <code>cost</code> and <code>arc</code> must be vertices of the graph.
+ */
+public final class CostMatrix implements Graph {
+
+    /* ATTRIBUTES */
+
+    /**
+     * The number of vertices of the graph
+     */
+    private final int nbVertices;
+
+    /**
+     * The cost of the arc from i to j at index <code>i * nbVertices + j</code>, -1 if there is no arc
+     */
+    private final double[] costs;
+
+    /**
+     * The bitset of the arcs, with the same indexes as <code>costs</code>
+     */
+    private final long[] arcs;
+
+    /**
+     * The precedence constraints between the vertices
+     */
+    private final Precedence precedence;
+
+    /**
+     * The successors of each vertex, sorted by ascending cost
+     */
+    private final int[][] sortedSuccessors;
+
+    /**
+     * Create the cost matrix of a graph
+     * @param nbVertices the number of vertices of the graph
+     * @param costs the costs of the arcs in row-major order, -1 if there is no arc (the array is kept, not copied)
+     * @param precedence the precedence constraints between the vertices
+     */
+    CostMatrix(int nbVertices, double[] costs, Precedence precedence) {
+        this.nbVertices = nbVertices;
+        this.costs = costs;
+        this.precedence = precedence;
+        this.arcs = new long[(costs.length + 63) >>> 6];
+        for (int k = 0; k < costs.length; k++) {
+            if (costs[k] != -1) arcs[k >>> 6] |= 1L << k;
+        }
+        this.sortedSuccessors = new int[nbVertices][];
+        for (int i = 0; i < nbVertices; i++) {
+            int vertex = i;
+            sortedSuccessors[i] = IntStream.range(0, nbVertices)
+                    .filter(j -> arc(vertex, j))
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(j -> cost(vertex, j)))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Get the cost matrix of a graph, built once by the complete graphs
+     * @param g a graph
+     * @return the cost matrix of <code>g</code>
+     */
+    public static CostMatrix of(Graph g) {
+        if (g instanceof CostMatrix) return (CostMatrix) g;
+        if (g instanceof CompleteGraph) return ((CompleteGraph) g).getCostMatrix();
+        int n = g.getNbVertices();
+        double[] costs = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) costs[i * n + j] = g.isArc(i, j) ? g.getCost(i, j) : -1;
+        }
+        return new CostMatrix(n, costs, g.getPrecedence());
+    }
+
+    /**
+     * Unchecked cost of an arc
+     * @param i the origin vertex
+     * @param j the end vertex
+     * @return the cost of the arc from i to j, -1 if there is no arc
+     */
+    public double cost(int i, int j) {
+        return costs[i * nbVertices + j];
+    }
+
+    /**
+     * Unchecked existence of an arc
+     * @param i the origin vertex
+     * @param j the end vertex
+     * @return whether there is an arc from i to j
+     */
+    public boolean arc(int i, int j) {
+        int k = i * nbVertices + j;
+        return (arcs[k >>> 6] & (1L << k)) != 0;
+    }
+
+    /**
+     * Get the successors of a vertex from the nearest to the farthest, computed once with the matrix
+     * @param i the vertex
+     * @return the vertices j such that there is an arc from i to j, sorted by ascending cost (must not be modified)
+     */
+    public int[] getSortedSuccessors(int i) {
+        return sortedSuccessors[i];
+    }
+
+    @Override
+    public int getNbVertices() {
+        return nbVertices;
+    }
+
+    @Override
+    public double getCost(int i, int j) {
+        if (i<0 || i>=nbVertices || j<0 || j>=nbVertices)
+            return -1;
+        return cost(i, j);
+    }
+
+    @Override
+    public boolean isArc(int i, int j) {
+        return !(i<0 || i>=nbVertices || j<0 || j>=nbVertices) && arc(i, j);
+    }
+
+    @Override
+    public Precedence getPrecedence() {
+        return precedence;
+    }
+}
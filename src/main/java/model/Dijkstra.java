@@ -91,6 +91,64 @@ public class Dijkstra {
         return listShortestPathFromOrigin;
     }
 
+    /**
+     * Algorithm dijkstra on the reversed map : compute all shortest paths between the points in the list
+     * "listUsefulStartPoints" and a destination, with a single search from the destination along the segments taken
+     * backwards
+     * @param listIntersections the list with all intersections
+     * @param listUsefulStartPoints the intersections from which the destination must be reached
+     * @param destination the intersection to which we search the shortest paths
+     * @return listShortestPathToDestination, the list of the shortest paths from the useful start points to the destination
+     */
+    public static ArrayList<ShortestPath> computeReverse(List<Intersection> listIntersections, ArrayList<Intersection> listUsefulStartPoints, Intersection destination) {
+        ArrayList<ShortestPath> listShortestPathToDestination = new ArrayList<>();
+        int intersectionsSize = listIntersections.size();
+        // The segments arriving at each intersection
+        ArrayList<ArrayList<Segment>> incomingSegments = new ArrayList<>(intersectionsSize);
+        for (int i = 0; i < intersectionsSize; i++) incomingSegments.add(new ArrayList<>());
+        for (Intersection intersection : listIntersections) {
+            for (Segment seg : intersection.getAdjacentSegments()) incomingSegments.get((int) seg.getDestination().getId()).add(seg);
+        }
+        PriorityQueue<undeterminedIntersection> undeterminedIntersection = new PriorityQueue<>(intersectionsSize, new undeterminedIntersection());
+        boolean[] settledNodes = new boolean[intersectionsSize];
+        double[] distance = new double[intersectionsSize];
+        // The first segment of the shortest path from each intersection to the destination
+        Segment[] nextSegment = new Segment[intersectionsSize];
+        Arrays.fill(distance, Double.MAX_VALUE);
+
+        distance[(int) destination.getId()] = 0;
+        undeterminedIntersection.add(new undeterminedIntersection(destination, 0));
+
+        while (!undeterminedIntersection.isEmpty()) {
+            Intersection currentNode = undeterminedIntersection.remove().intersection;
+            int current = (int) currentNode.getId();
+            if (settledNodes[current]) {
+                continue;
+            }
+            settledNodes[current] = true;
+            for (Segment seg : incomingSegments.get(current)) {
+                int start = (int) seg.getOrigin().getId();
+                if (!settledNodes[start] && distance[start] > distance[current] + seg.getLength()) {
+                    distance[start] = distance[current] + seg.getLength();
+                    nextSegment[start] = seg;
+                    undeterminedIntersection.add(new undeterminedIntersection(seg.getOrigin(), distance[start]));
+                }
+            }
+            if (listUsefulStartPoints.contains(currentNode)) {
+                ArrayList<Segment> listSegments = new ArrayList<>();
+                if (currentNode.equals(destination)) {
+                    listSegments.add(new Segment(0.0, "segment", destination, currentNode));
+                } else {
+                    for (Segment seg = nextSegment[current]; seg != null; seg = nextSegment[(int) seg.getDestination().getId()]) listSegments.add(seg);
+                }
+                listShortestPathToDestination.add(new ShortestPath(distance[current], listSegments, currentNode, destination));
+                if (listShortestPathToDestination.size() == listUsefulStartPoints.size())
+                    break;
+            }
+        }
+        return listShortestPathToDestination;
+    }
+
     private static void searchPath(List<Intersection> listIntersections, Intersection origin, ArrayList<ShortestPath> listShortestPathFromOrigin, double[] distance, int[] parent, Intersection currentNode) {
         Intersection tempoIntersection = currentNode;
         ArrayList<Segment> listSegments = new ArrayList<>();
@@ -0,0 +1,194 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fleet of couriers sharing the requests of a planning.
+ * The requests are split between the couriers by spatial clustering: each request is located at the middle of its
+ * pickup and its delivery, so that a pickup and its delivery always go to the same courier, and the requests are
+ * grouped around as many centres as there are couriers (k-means). Each cluster gets at most its share of the requests,
+ * rounded up, so that the couriers have tours of similar sizes and the slowest sub-problem doesn't keep the others
+ * waiting. Each courier then has its own tour, leaving the depot of the planning at the same time, and the tours are
+ * computed at the same time on their own threads with the solver suited to their size. The processors are shared
+ * between the couriers: at most one courier per processor is computed at the same time, and the parallel solvers of
+ * each courier get their share of the processors, so that the threads of the fleet don't outnumber them.
+ */
+public class Fleet {
+
+    /**
+     * The maximal number of iterations of the clustering
+     */
+    private static final int MAX_CLUSTERING_ITERATIONS = 100;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The tour of each courier
+     */
+    private final ArrayList<Tour> courierTours = new ArrayList<>();
+
+    /**
+     * The number of threads shared by the couriers, the parallelism of the planning
+     */
+    private final int parallelism;
+
+    /**
+     * Split the requests of a planning between several couriers, at most one courier per request
+     * @param planning the tour holding the depot, the departure time, the time limit, the target gap and the requests
+     * @param nbCouriers the number of couriers
+     * @throws IllegalArgumentException if there is no courier
+     */
+    public Fleet(Tour planning, int nbCouriers) {
+        if (nbCouriers < 1) throw new IllegalArgumentException("A fleet needs at least one courier, not " + nbCouriers);
+        this.parallelism = planning.getSolverRegistry().getParallelism();
+        ArrayList<Request> requests = planning.getPlanningRequests();
+        int nbClusters = Math.max(1, Math.min(nbCouriers, requests.size()));
+        int[] cluster = cluster(requests, nbClusters, planning.getDepotAddress().getLatitude());
+        for (int c = 0; c < nbClusters; c++) {
+            Tour courierTour = new Tour();
+            courierTour.setDepotAddress(planning.getDepotAddress());
+            courierTour.setDepartureTime(planning.getDepartureTime());
+            courierTour.setTimeLimit(planning.getTimeLimit());
+            courierTour.setTargetGap(planning.getTargetGap());
+            courierTour.getSolverRegistry().setForcedSolver(planning.getSolverRegistry().getForcedSolver());
+            for (int r = 0; r < requests.size(); r++) {
+                if (cluster[r] == c) courierTour.addRequest(requests.get(r));
+            }
+            // a cluster may stay empty when the requests are few, no courier is needed for it
+            if (!courierTour.getPlanningRequests().isEmpty()) courierTours.add(courierTour);
+        }
+    }
+
+    /**
+     * Group the requests by k-means on the middle of their pickup and delivery, each cluster holding at most its
+     * share of the requests
+     * @param requests the requests to group
+     * @param nbClusters the number of clusters, at most the number of requests
+     * @param latitude the latitude of the map, which scales the longitudes into distances comparable to latitudes
+     * @return the cluster of each request
+     */
+    private static int[] cluster(ArrayList<Request> requests, int nbClusters, double latitude) {
+        int nbRequests = requests.size();
+        double scale = Math.cos(Math.toRadians(latitude));
+        double[] x = new double[nbRequests];
+        double[] y = new double[nbRequests];
+        for (int r = 0; r < nbRequests; r++) {
+            Request request = requests.get(r);
+            x[r] = scale * (request.getPickupAddress().getLongitude() + request.getDeliveryAddress().getLongitude()) / 2;
+            y[r] = (request.getPickupAddress().getLatitude() + request.getDeliveryAddress().getLatitude()) / 2;
+        }
+        int[] cluster = new int[nbRequests];
+        if (nbRequests == 0) return cluster;
+
+        // the first centre is the first request, each next one is the request farthest from the chosen centres
+        double[] centreX = new double[nbClusters];
+        double[] centreY = new double[nbClusters];
+        double[] nearest = new double[nbRequests];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int chosen = 0;
+        for (int c = 0; c < nbClusters; c++) {
+            centreX[c] = x[chosen];
+            centreY[c] = y[chosen];
+            int farthest = 0;
+            for (int r = 0; r < nbRequests; r++) {
+                nearest[r] = Math.min(nearest[r], squaredDistance(x[r], y[r], centreX[c], centreY[c]));
+                if (nearest[r] > nearest[farthest]) farthest = r;
+            }
+            chosen = farthest;
+        }
+
+        int capacity = (nbRequests + nbClusters - 1) / nbClusters;
+        int[] previous = new int[nbRequests];
+        for (int iteration = 0; iteration < MAX_CLUSTERING_ITERATIONS; iteration++) {
+            assign(x, y, centreX, centreY, capacity, cluster);
+            if (iteration > 0 && Arrays.equals(cluster, previous)) break;
+            System.arraycopy(cluster, 0, previous, 0, nbRequests);
+            // move each centre to the middle of its requests
+            double[] sumX = new double[nbClusters];
+            double[] sumY = new double[nbClusters];
+            int[] size = new int[nbClusters];
+            for (int r = 0; r < nbRequests; r++) {
+                sumX[cluster[r]] += x[r];
+                sumY[cluster[r]] += y[r];
+                size[cluster[r]]++;
+            }
+            for (int c = 0; c < nbClusters; c++) {
+                if (size[c] == 0) continue;
+                centreX[c] = sumX[c] / size[c];
+                centreY[c] = sumY[c] / size[c];
+            }
+        }
+        return cluster;
+    }
+
+    /**
+     * Give each request to its closest centre which isn't full, the closest pairs of a request and a centre first
+     * @param x the abscissa of each request
+     * @param y the ordinate of each request
+     * @param centreX the abscissa of each centre
+     * @param centreY the ordinate of each centre
+     * @param capacity the maximal number of requests of a cluster
+     * @param cluster the array receiving the cluster of each request
+     */
+    private static void assign(double[] x, double[] y, double[] centreX, double[] centreY, int capacity, int[] cluster) {
+        int nbRequests = x.length;
+        int nbClusters = centreX.length;
+        double[] distances = new double[nbRequests * nbClusters];
+        Integer[] pairs = new Integer[nbRequests * nbClusters];
+        for (int r = 0; r < nbRequests; r++) {
+            for (int c = 0; c < nbClusters; c++) {
+                distances[r * nbClusters + c] = squaredDistance(x[r], y[r], centreX[c], centreY[c]);
+                pairs[r * nbClusters + c] = r * nbClusters + c;
+            }
+        }
+        Arrays.sort(pairs, (a, b) -> Double.compare(distances[a], distances[b]));
+        Arrays.fill(cluster, -1);
+        int[] size = new int[nbClusters];
+        for (int pair : pairs) {
+            int r = pair / nbClusters;
+            int c = pair % nbClusters;
+            if (cluster[r] >= 0 || size[c] == capacity) continue;
+            cluster[r] = c;
+            size[c]++;
+        }
+    }
+
+    /**
+     * @return the squared distance between two points
+     */
+    private static double squaredDistance(double x1, double y1, double x2, double y2) {
+        return (x1 - x2) * (x1 - x2) + (y1 - y2) * (y1 - y2);
+    }
+
+    /**
+     * Compute the tours of the couriers on at most one thread per processor, the parallel solvers of each courier
+     * sharing the processors left, and wait for all of them
+     * @param allIntersectionsList the list with all intersections of the map
+     */
+    public void computeTours(List<Intersection> allIntersectionsList) {
+        int nbThreads = Math.max(1, Math.min(courierTours.size(), parallelism));
+        for (Tour courierTour : courierTours) courierTour.getSolverRegistry().setParallelism(parallelism / nbThreads);
+        ArrayList<Runnable> computations = new ArrayList<>();
+        for (Tour courierTour : courierTours) computations.add(() -> courierTour.computeTour(allIntersectionsList));
+        ParallelTasks.runAll("courier-tour", nbThreads, computations, "The tour of a courier couldn't be computed");
+    }
+
+    /**
+     * Getter for courierTours attribute.
+     * @return the tour of each courier
+     */
+    public ArrayList<Tour> getCourierTours() {
+        return courierTours;
+    }
+
+    /**
+     * @return the sum of the lengths of the tours of the couriers
+     */
+    public double getTotalLength() {
+        double length = 0;
+        for (Tour courierTour : courierTours) length += courierTour.getTourLength();
+        return length;
+    }
+}
@@ -0,0 +1,405 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Island-model genetic algorithm, for plannings too big for the branch and bound.
+ * Each island is a population of tours evolving on its own thread. At each generation two parents are chosen by
+ * tournament and crossed: the child takes at each position the first vertex not placed yet of one parent or the other,
+ * chosen at random, so that the relative order of the parents is kept and a pickup always comes before its delivery.
+ * The child may then be mutated by moving a vertex elsewhere between its predecessors and its successors. It replaces
+ * the worst tour of the island if it is better and not already there. Every few generations each island sends a copy
+ * of its best tour to the next island, which brings new material to the populations without making them identical.
+ * The costs are computed by primitive loops over the cost matrix and the tours are kept in arrays allocated once, so
+ * a generation doesn't allocate apart from the migrants. Every new best tour is improved by local search and posted to the publisher.
+ */
+public class GeneticTSP implements TSP {
+
+    /**
+     * The number of tours of an island
+     */
+    private static final int POPULATION_SIZE = 40;
+
+    /**
+     * The number of tours drawn by a tournament, the best of them being chosen
+     */
+    private static final int TOURNAMENT_SIZE = 3;
+
+    /**
+     * The probability that a child is mutated
+     */
+    private static final double MUTATION_RATE = 0.3;
+
+    /**
+     * The number of generations of an island between two migrations
+     */
+    private static final int MIGRATION_INTERVAL = 200;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The random generator giving the seed of each island
+     */
+    private final Random random;
+
+    /**
+     * The number of islands evolving at the same time
+     */
+    private final int nbIslands;
+
+    /**
+     * The best solution found so far, shared by the islands
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The number of generations of all the islands during the last search
+     */
+    private final AtomicLong nbGenerations = new AtomicLong();
+
+    /**
+     * The number of tours received by the islands from their previous island during the last search
+     */
+    private final AtomicLong nbMigrations = new AtomicLong();
+
+    /**
+     * Create a search with one island per processor and a random seed
+     */
+    public GeneticTSP() {
+        this(new Random(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a search with a given random generator, for reproducible islands
+     * @param random the random generator
+     * @param nbIslands the number of islands evolving at the same time
+     */
+    public GeneticTSP(Random random, int nbIslands) {
+        this.random = random;
+        this.nbIslands = Math.max(1, nbIslands);
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long deadline = System.currentTimeMillis() + timeLimit;
+        incumbent = new Incumbent(g.getNbVertices());
+        nbGenerations.set(0);
+        nbMigrations.set(0);
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        int[] seed = incumbent.seed(g, initialSolution, publisher, deadline);
+        if (seed == null) {
+            publisher.close();
+            tour.setTourComputed(true);
+            return;
+        }
+
+        Island[] islands = new Island[nbIslands];
+        for (int i = 0; i < nbIslands; i++) islands[i] = new Island(new Random(random.nextLong()), g, seed);
+        ArrayList<Runnable> evolutions = new ArrayList<>();
+        for (int i = 0; i < nbIslands; i++) {
+            Island island = islands[i];
+            Island next = islands[(i + 1) % nbIslands];
+            evolutions.add(() -> island.evolve(next, tour, publisher, deadline));
+        }
+        ParallelTasks.runAll("genetic-island", nbIslands, evolutions, "A genetic island failed");
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Getter for nbGenerations attribute.
+     * @return the number of generations of all the islands during the last search
+     */
+    public long getNbGenerations() {
+        return nbGenerations.get();
+    }
+
+    /**
+     * Getter for nbMigrations attribute.
+     * @return the number of tours received by the islands from their previous island during the last search
+     */
+    public long getNbMigrations() {
+        return nbMigrations.get();
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
+    }
+
+    /**
+     * A population of tours evolving on its own thread, all its arrays being allocated once
+     */
+    class Island {
+
+        /**
+         * The random generator of the island
+         */
+        private final Random random;
+
+        /**
+         * The graph studied
+         */
+        private final Graph g;
+
+        /**
+         * The costs of the graph studied
+         */
+        private final CostMatrix costs;
+
+        /**
+         * The precedence constraints between the vertices
+         */
+        private final Precedence precedence;
+
+        /**
+         * The number of vertices of the graph studied
+         */
+        private final int nbVertices;
+
+        /**
+         * The tours of the island and their costs
+         */
+        private final int[][] population = new int[POPULATION_SIZE][];
+        private final double[] populationCosts = new double[POPULATION_SIZE];
+
+        /**
+         * The tours sent by the previous island, not taken into the population yet
+         */
+        private final ConcurrentLinkedQueue<int[]> migrants = new ConcurrentLinkedQueue<>();
+
+        /**
+         * The child of the current generation
+         */
+        private int[] child;
+
+        /**
+         * The bitset of the vertices already placed in the child
+         */
+        private final long[] placed;
+
+        /**
+         * The index of the next vertex of each parent to look at during the crossover
+         */
+        private final int[] cursors = new int[2];
+
+        /**
+         * The position of each vertex in the child
+         */
+        private final int[] rank;
+
+        /**
+         * Create an island with the seed tour and random tours respecting the precedences
+         * @param random the random generator of the island
+         * @param g the graph studied
+         * @param seed a first tour
+         */
+        Island(Random random, Graph g, int[] seed) {
+            this.random = random;
+            this.g = g;
+            this.costs = CostMatrix.of(g);
+            this.precedence = g.getPrecedence();
+            this.nbVertices = g.getNbVertices();
+            this.child = new int[nbVertices];
+            this.placed = new long[(nbVertices + 63) >>> 6];
+            this.rank = new int[nbVertices];
+            population[0] = seed.clone();
+            populationCosts[0] = tourCost(population[0]);
+            for (int k = 1; k < POPULATION_SIZE; k++) {
+                population[k] = new int[nbVertices];
+                randomTour(population[k]);
+                populationCosts[k] = tourCost(population[k]);
+            }
+        }
+
+        /**
+         * Evolve the island until the time limit or until the computation is stopped
+         * @param next the island receiving the migrants of this island
+         * @param tour the tour being computed
+         * @param publisher the channel through which the tours are published
+         * @param deadline the time at which the search must stop
+         */
+        void evolve(Island next, Tour tour, SolutionPublisher publisher, long deadline) {
+            double bestCost = populationCosts[best()];
+            for (long generation = 1; !tour.isTourComputed(); generation++) {
+                if ((generation & 63) == 0 && System.currentTimeMillis() >= deadline) break;
+                int[] migrant;
+                while ((migrant = migrants.poll()) != null) {
+                    replaceWorst(migrant, tourCost(migrant));
+                    nbMigrations.incrementAndGet();
+                }
+
+                int first = tournament();
+                int second = tournament();
+                crossover(population[first], population[second]);
+                if (random.nextDouble() < MUTATION_RATE) mutate();
+                double cost = tourCost(child);
+                if (cost < bestCost - 1e-9) {
+                    cost = LocalSearch.improve(g, child, deadline);
+                    bestCost = cost;
+                    incumbent.offer(child, cost, publisher);
+                }
+                replaceWorst(child, cost);
+                if (next != this && generation % MIGRATION_INTERVAL == 0) next.migrants.add(population[best()].clone());
+                nbGenerations.incrementAndGet();
+            }
+        }
+
+        /**
+         * Build a tour by visiting at random a vertex whose predecessors are visited
+         * @param order the array receiving the tour
+         */
+        void randomTour(int[] order) {
+            Arrays.fill(placed, 0);
+            placed[0] = 1L;
+            order[0] = 0;
+            for (int depth = 1; depth < nbVertices; depth++) {
+                int nbEligible = 0;
+                for (int v = 1; v < nbVertices; v++) {
+                    if (!TemplateTSP.isVisited(placed, v) && precedence.isEligible(v, placed)) rank[nbEligible++] = v;
+                }
+                int vertex = rank[random.nextInt(nbEligible)];
+                placed[vertex >>> 6] |= 1L << vertex;
+                order[depth] = vertex;
+            }
+        }
+
+        /**
+         * @return the index of the best of a few tours drawn at random
+         */
+        private int tournament() {
+            int winner = random.nextInt(POPULATION_SIZE);
+            for (int k = 1; k < TOURNAMENT_SIZE; k++) {
+                int candidate = random.nextInt(POPULATION_SIZE);
+                if (populationCosts[candidate] < populationCosts[winner]) winner = candidate;
+            }
+            return winner;
+        }
+
+        /**
+         * Cross two tours into the child: each position takes the first vertex not placed yet of one of the parents.
+         * All the vertices before it in this parent are placed, so are its predecessors.
+         * @param parent1 the first parent
+         * @param parent2 the second parent
+         */
+        void crossover(int[] parent1, int[] parent2) {
+            Arrays.fill(placed, 0);
+            placed[0] = 1L;
+            child[0] = 0;
+            cursors[0] = 1;
+            cursors[1] = 1;
+            for (int depth = 1; depth < nbVertices; depth++) {
+                int side = random.nextInt(2);
+                int[] parent = side == 0 ? parent1 : parent2;
+                while (TemplateTSP.isVisited(placed, parent[cursors[side]])) cursors[side]++;
+                int vertex = parent[cursors[side]];
+                placed[vertex >>> 6] |= 1L << vertex;
+                child[depth] = vertex;
+            }
+        }
+
+        /**
+         * Move a vertex of the child at random between its last predecessor and its first successor
+         */
+        void mutate() {
+            if (nbVertices < 3) return;
+            for (int position = 0; position < nbVertices; position++) rank[child[position]] = position;
+            int from = 1 + random.nextInt(nbVertices - 1);
+            int vertex = child[from];
+            // the positions are counted once the vertex is removed from the child
+            int low = 1, high = nbVertices - 1;
+            for (int predecessor : precedence.getPredecessors(vertex)) {
+                int position = rank[predecessor] < from ? rank[predecessor] : rank[predecessor] - 1;
+                low = Math.max(low, position + 1);
+            }
+            for (int successor : precedence.getSuccessors(vertex)) {
+                int position = rank[successor] < from ? rank[successor] : rank[successor] - 1;
+                high = Math.min(high, position);
+            }
+            int to = low + random.nextInt(high - low + 1);
+            if (to == from) return;
+            if (to < from) System.arraycopy(child, to, child, to + 1, from - to);
+            else System.arraycopy(child, from + 1, child, from, to - from);
+            child[to] = vertex;
+        }
+
+        /**
+         * Put a tour in place of the worst tour of the island, if it is better and its cost isn't already there
+         * @param order the tour
+         * @param cost the cost of the tour
+         */
+        private void replaceWorst(int[] order, double cost) {
+            int worst = 0;
+            for (int k = 0; k < POPULATION_SIZE; k++) {
+                // tours with the same cost are most likely the same tour, which would take over the population
+                if (Math.abs(populationCosts[k] - cost) < 1e-9) return;
+                if (populationCosts[k] > populationCosts[worst]) worst = k;
+            }
+            if (cost >= populationCosts[worst]) return;
+            if (order == child) {
+                // the replaced array becomes the next child
+                child = population[worst];
+                population[worst] = order;
+            } else {
+                System.arraycopy(order, 0, population[worst], 0, nbVertices);
+            }
+            populationCosts[worst] = cost;
+        }
+
+        /**
+         * Getter for child attribute.
+         * @return the child of the current generation
+         */
+        int[] getChild() {
+            return child;
+        }
+
+        /**
+         * @return the index of the best tour of the island
+         */
+        private int best() {
+            int best = 0;
+            for (int k = 1; k < POPULATION_SIZE; k++) if (populationCosts[k] < populationCosts[best]) best = k;
+            return best;
+        }
+
+        /**
+         * @param order a tour
+         * @return the cost of the tour, infinite if an arc is missing
+         */
+        private double tourCost(int[] order) {
+            double cost = 0;
+            for (int k = 0; k < nbVertices; k++) {
+                int from = order[k];
+                int to = order[k + 1 < nbVertices ? k + 1 : 0];
+                if (!costs.arc(from, to)) return Double.POSITIVE_INFINITY;
+                cost += costs.cost(from, to);
+            }
+            return cost;
+        }
+    }
+}
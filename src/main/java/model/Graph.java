@@ -15,4 +15,9 @@ public interface Graph {
      */
     boolean isArc(int i, int j);
 
+    /**
+     * @return the precedence constraints between the vertices
+     */
+    Precedence getPrecedence();
+
 }
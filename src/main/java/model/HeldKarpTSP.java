@@ -0,0 +1,179 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Exact resolution of the TSP by dynamic programming (Held-Karp) over the subsets of visited vertices.
+ * Vertex 0 is the depot, vertices <code>2r+1</code> and <code>2r+2</code> are the pickup and the delivery of request r.
+ * Since a delivery can't be visited before its pickup, every reachable subset is described by the state of each
+ * request: nothing visited, pickup visited, or pickup and delivery visited. A subset is thus encoded as a number in
+ * base 3, and the last visited vertex is always the pickup or the delivery of a request, depending on its state.
+ * The table therefore holds 3^k * k costs for k requests, which stays small up to <code>MAX_REQUESTS</code> requests.
+ * A first tour built by cheapest insertion and local search is published before the table is filled, so that the
+ * tour is valid even if the time limit stops the filling.
+ * Bigger plannings, and other precedence constraints, are delegated to the parallel branch and bound of
+ * <code>TSP4</code>.
+ */
+public class HeldKarpTSP implements TSP {
+
+    /**
+     * The maximal number of requests solved by dynamic programming (3^12 * 12 costs, about 50 MB)
+     */
+    public static final int MAX_REQUESTS = 12;
+
+    /**
+     * The solver used when the planning is too big
+     */
+    private TSP delegate;
+
+    /**
+     * The best solution found by the last search, null before any search
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The cost of the optimal tour once the table has been filled, -1 before
+     */
+    private double lowerBound = -1;
+
+    /**
+     * The relative gap at which the delegated search stops
+     */
+    private double targetGap;
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        int nbVertices = g.getNbVertices();
+        int nbRequests = (nbVertices - 1) / 2;
+        if (nbRequests > MAX_REQUESTS || !g.getPrecedence().isPickupDelivery()) {
+            delegate = new ParallelTSP(TSP4::new);
+            delegate.setTargetGap(targetGap);
+            delegate.searchSolution(timeLimit, g, tour);
+            return;
+        }
+        delegate = null;
+        long deadline = System.currentTimeMillis() + timeLimit;
+        incumbent = new Incumbent(nbVertices);
+        lowerBound = -1;
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        if (nbRequests > 0) {
+            incumbent.seed(g, null, publisher, deadline);
+            int[] order = new int[nbVertices];
+            // the table isn't even allocated if the seed has used up the time
+            double cost = System.currentTimeMillis() < deadline ? solve(CostMatrix.of(g), nbRequests, order, tour, deadline) : Double.MAX_VALUE;
+            if (cost < Double.MAX_VALUE) {
+                // the dynamic programming is exact, its tour replaces the seed even when their costs are equal
+                lowerBound = cost;
+                incumbent = new Incumbent(nbVertices);
+                incumbent.offer(order, cost, publisher);
+            }
+        }
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    /**
+     * Fill the dynamic programming table and rebuild the best tour
+     * @param costs the costs of the graph
+     * @param nbRequests the number of requests
+     * @param bestSol the array receiving the order of the vertices of the best tour
+     * @param tour the tour, checked to stop the computation
+     * @param deadline the time at which the computation stops, in milliseconds since epoch
+     * @return the cost of the best tour, or <code>Double.MAX_VALUE</code> if no tour has been found or if the
+     * computation has been stopped
+     */
+    private double solve(CostMatrix costs, int nbRequests, int[] bestSol, Tour tour, long deadline) {
+        int[] power = new int[nbRequests + 1];
+        power[0] = 1;
+        for (int r = 0; r < nbRequests; r++) power[r + 1] = power[r] * 3;
+        int nbStates = power[nbRequests];
+
+        // cost[state * nbRequests + r]: shortest path from the depot visiting exactly state and ending at request r
+        double[] cost = new double[nbStates * nbRequests];
+        byte[] previous = new byte[nbStates * nbRequests];
+        Arrays.fill(cost, Double.MAX_VALUE);
+        for (int r = 0; r < nbRequests; r++) {
+            if (costs.arc(0, 2 * r + 1)) {
+                cost[power[r] * nbRequests + r] = costs.cost(0, 2 * r + 1);
+                previous[power[r] * nbRequests + r] = -1;
+            }
+        }
+
+        // digits of the current state, incremented along with it
+        int[] digit = new int[nbRequests];
+        for (int state = 1; state < nbStates; state++) {
+            for (int r = 0; digit[r]++ == 2; r++) digit[r] = 0;
+            if ((state & 1023) == 0 && (tour.isTourComputed() || System.currentTimeMillis() >= deadline)) return Double.MAX_VALUE;
+            for (int last = 0; last < nbRequests; last++) {
+                double currentCost = cost[state * nbRequests + last];
+                if (currentCost == Double.MAX_VALUE) continue;
+                int lastVertex = digit[last] == 1 ? 2 * last + 1 : 2 * last + 2;
+                for (int r = 0; r < nbRequests; r++) {
+                    if (digit[r] == 2) continue;
+                    // digit 0: the pickup is the next vertex, digit 1: the delivery is the next vertex
+                    int nextVertex = 2 * r + 1 + digit[r];
+                    if (!costs.arc(lastVertex, nextVertex)) continue;
+                    int next = (state + power[r]) * nbRequests + r;
+                    double nextCost = currentCost + costs.cost(lastVertex, nextVertex);
+                    if (nextCost < cost[next]) {
+                        cost[next] = nextCost;
+                        previous[next] = (byte) last;
+                    }
+                }
+            }
+        }
+
+        int fullState = nbStates - 1;
+        int bestLast = -1;
+        double bestSolCost = Double.MAX_VALUE;
+        for (int r = 0; r < nbRequests; r++) {
+            double currentCost = cost[fullState * nbRequests + r];
+            if (currentCost == Double.MAX_VALUE || !costs.arc(2 * r + 2, 0)) continue;
+            if (currentCost + costs.cost(2 * r + 2, 0) < bestSolCost) {
+                bestSolCost = currentCost + costs.cost(2 * r + 2, 0);
+                bestLast = r;
+            }
+        }
+        if (bestLast == -1) return Double.MAX_VALUE;
+
+        // walk back from the full state, the last vertex of a request is its delivery once it is fully visited
+        Arrays.fill(digit, 2);
+        int state = fullState;
+        int last = bestLast;
+        for (int position = bestSol.length - 1; position > 0; position--) {
+            bestSol[position] = 2 * last + digit[last];
+            int before = previous[state * nbRequests + last];
+            state -= power[last];
+            digit[last]--;
+            last = before;
+        }
+        bestSol[0] = 0;
+        return bestSolCost;
+    }
+
+    @Override
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    @Override
+    public double getLowerBound() {
+        if (delegate != null) return delegate.getLowerBound();
+        return lowerBound;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (delegate != null) return delegate.getSolutionCost();
+        if (incumbent != null) return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (delegate != null) return delegate.getBestSol();
+        if (incumbent != null) return incumbent.getSolution();
+        return null;
+    }
+}
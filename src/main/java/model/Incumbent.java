@@ -0,0 +1,135 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The best solution found so far by a TSP search, possibly shared by several threads exploring the same graph.
+ * Its cost is lowered without locking so that every thread prunes with the best known cost as soon as it is found.
+ * The order of the vertices is recorded under the lock of the incumbent, which is also held while the solution is
+ * published to the tour, so that the published cost and order always match: the threads publish their solutions
+ * through <code>offer</code>.
+ */
+public class Incumbent {
+
+    /* ATTRIBUTES */
+
+    /**
+     * The bits of the best known cost, used to prune the search
+     */
+    private final AtomicLong costBits = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+
+    /**
+     * The order of the vertices of the recorded solution
+     */
+    private final int[] solution;
+
+    /**
+     * The cost of the recorded solution
+     */
+    private double solutionCost = Double.MAX_VALUE;
+
+    /**
+     * The time at which the recorded solution has been found, in milliseconds since epoch
+     */
+    private long solutionTime;
+
+    /**
+     * Create an empty incumbent
+     * @param nbVertices the number of vertices of the graph
+     */
+    public Incumbent(int nbVertices) {
+        this.solution = new int[nbVertices];
+    }
+
+    /**
+     * @return the best known cost, a branch can be pruned as soon as it can't be lower
+     */
+    public double getCost() {
+        return Double.longBitsToDouble(costBits.get());
+    }
+
+    /**
+     * Lower the best known cost without locking
+     * @param cost the cost of a new solution
+     * @return whether <code>cost</code> is now the best known cost
+     */
+    public boolean lowerCost(double cost) {
+        long current = costBits.get();
+        while (cost < Double.longBitsToDouble(current)) {
+            if (costBits.compareAndSet(current, Double.doubleToLongBits(cost))) return true;
+            current = costBits.get();
+        }
+        return false;
+    }
+
+    /**
+     * Record a solution if it is better than the recorded one.
+     * Callers publishing the solution must hold the lock of the incumbent until the publication is over.
+     * @param path the order of the vertices of the solution
+     * @param cost the cost of the solution
+     * @return whether the solution has been recorded
+     */
+    public synchronized boolean record(int[] path, double cost) {
+        lowerCost(cost);
+        if (cost >= solutionCost) return false;
+        System.arraycopy(path, 0, solution, 0, solution.length);
+        solutionCost = cost;
+        solutionTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Record a solution and post it to the publisher if it is better than the best solution found so far
+     * @param order the order of the vertices of the solution
+     * @param cost the cost of the solution
+     * @param publisher the channel through which the solution is published
+     * @return whether <code>cost</code> has lowered the best known cost
+     */
+    public boolean offer(int[] order, double cost, SolutionPublisher publisher) {
+        if (!lowerCost(cost)) return false;
+        // the lock orders the posts of the threads sharing the incumbent, so that the latest post is the best
+        synchronized (this) {
+            if (record(order, cost)) publisher.post(order, cost);
+        }
+        return true;
+    }
+
+    /**
+     * Build a first tour by cheapest insertion, or start from the initial solution if one is given, improve it by
+     * local search and offer it, so that the tour is displayed at once and its cost guides the search
+     * @param g the graph with all the costs
+     * @param initialSolution the order of the vertices to start from, or null
+     * @param publisher the channel through which the tour is published
+     * @param deadline the time at which the local search stops, in milliseconds since epoch
+     * @return the order of the first tour, or null if no tour has been found
+     */
+    public int[] seed(Graph g, int[] initialSolution, SolutionPublisher publisher, long deadline) {
+        int[] order = initialSolution != null ? initialSolution.clone() : CheapestInsertion.compute(g);
+        if (order == null) return null;
+        double cost = LocalSearch.improve(g, order, deadline);
+        if (cost == Double.POSITIVE_INFINITY) return null;
+        offer(order, cost, publisher);
+        return order;
+    }
+
+    /**
+     * @return a copy of the order of the vertices of the recorded solution, which a later solution doesn't change
+     */
+    public synchronized int[] getSolution() {
+        return solution.clone();
+    }
+
+    /**
+     * @return the cost of the recorded solution
+     */
+    public synchronized double getSolutionCost() {
+        return solutionCost;
+    }
+
+    /**
+     * @return the time at which the recorded solution has been found, in milliseconds since epoch
+     */
+    public synchronized long getSolutionTime() {
+        return solutionTime;
+    }
+}
@@ -0,0 +1,323 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Adaptive large neighbourhood search, for plannings too big for the branch and bound.
+ * Vertex 0 is the depot, vertices <code>2r+1</code> and <code>2r+2</code> are the pickup and the delivery of request r.
+ * Starting from the tour built by cheapest insertion, or from a given tour, each iteration removes a few requests
+ * (pickup and delivery together) from the current tour and inserts them back at their cheapest positions. Two
+ * removal operators are used: random removal, and related removal which takes requests close to a random one. They
+ * are chosen at random with weights adapted to their recent successes. The new tour replaces the current one according to simulated annealing,
+ * with a temperature decreasing along the time limit, or along the iterations if their number is limited. Every
+ * improving tour is polished by local search and posted to the publisher which updates the tour. With a given random
+ * generator and a limited number of iterations, the search is reproducible.
+ */
+public class LargeNeighbourhoodSearchTSP implements TSP {
+
+    /**
+     * The random removal and the related removal
+     */
+    private static final int RANDOM_REMOVAL = 0, RELATED_REMOVAL = 1;
+
+    /**
+     * The maximal number of requests removed by an iteration
+     */
+    private static final int MAX_REMOVED = 30;
+
+    /**
+     * The number of iterations between two updates of the weights of the removal operators
+     */
+    private static final int SEGMENT_LENGTH = 100;
+
+    /**
+     * The part of the weights of the removal operators given by the last segment
+     */
+    private static final double REACTION = 0.2;
+
+    /**
+     * The scores of a removal operator when it gives a new best tour, a better tour, or an accepted worse tour
+     */
+    private static final double BEST_SCORE = 33, BETTER_SCORE = 9, ACCEPTED_SCORE = 13;
+
+    /**
+     * The relative degradation accepted with probability 1/2 at the start of the search
+     */
+    private static final double START_DEGRADATION = 0.05;
+
+    /**
+     * The ratio between the final and the initial temperatures
+     */
+    private static final double COOLING = 1e-3;
+
+    /**
+     * The randomness of the related removal, the higher the closer the removed requests
+     */
+    private static final double RELATEDNESS = 3;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The random generator of the search
+     */
+    private final Random random;
+
+    /**
+     * The graph studied
+     */
+    private Graph g;
+
+    /**
+     * The best tour found so far
+     */
+    private int[] bestSol;
+
+    /**
+     * The cost of the best tour found so far, infinite if none
+     */
+    private double bestCost = Double.POSITIVE_INFINITY;
+
+    /**
+     * The number of iterations of the last search
+     */
+    private long nbIterations;
+
+    /**
+     * The maximal number of iterations of a search, 0 for no limit but the time limit
+     */
+    private long maxIterations;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The requests other than the reference of the related removal, sorted by relatedness, and whether each of them
+     * has been removed, allocated once per search
+     */
+    private long[] relatedRequests;
+    private boolean[] taken;
+
+    /**
+     * Create a search with a random seed
+     */
+    public LargeNeighbourhoodSearchTSP() {
+        this(new Random());
+    }
+
+    /**
+     * Create a search with a given random generator, for reproducible searches
+     * @param random the random generator
+     */
+    public LargeNeighbourhoodSearchTSP(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeLimit;
+        this.g = g;
+        bestSol = null;
+        bestCost = Double.POSITIVE_INFINITY;
+        nbIterations = 0;
+        int[] current = initialSolution != null ? initialSolution.clone() : CheapestInsertion.compute(g);
+        if (current == null) {
+            tour.setTourComputed(true);
+            return;
+        }
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        double currentCost = LocalSearch.improve(g, current, deadline);
+        publish(current, currentCost, publisher);
+
+        int nbVertices = g.getNbVertices();
+        int nbRequests = (nbVertices - 1) / 2;
+        int maxRemoved = Math.min(MAX_REMOVED, nbRequests);
+        int[] candidate = new int[nbVertices];
+        int[] removed = new int[maxRemoved];
+        relatedRequests = new long[Math.max(0, nbRequests - 1)];
+        taken = new boolean[Math.max(0, nbRequests - 1)];
+        double[] weights = {1, 1};
+        double[] scores = new double[2];
+        int[] uses = new int[2];
+        double startTemperature = -START_DEGRADATION * currentCost / nbVertices / Math.log(0.5);
+
+        while (maxRemoved > 0 && !tour.isTourComputed() && (maxIterations == 0 || nbIterations < maxIterations)) {
+            long now = System.currentTimeMillis();
+            if (now >= deadline) break;
+            // the first finite tour gives the scale of the costs
+            if (startTemperature == Double.POSITIVE_INFINITY && currentCost < Double.POSITIVE_INFINITY) {
+                startTemperature = -START_DEGRADATION * currentCost / nbVertices / Math.log(0.5);
+            }
+            double progress = maxIterations > 0 ? (double) nbIterations / maxIterations : (double) (now - startTime) / timeLimit;
+            double temperature = startTemperature * Math.pow(COOLING, progress);
+            nbIterations++;
+
+            int operator = random.nextDouble() * (weights[0] + weights[1]) < weights[0] ? RANDOM_REMOVAL : RELATED_REMOVAL;
+            int nbRemoved = 1 + random.nextInt(maxRemoved);
+            if (operator == RANDOM_REMOVAL) randomRemoval(nbRequests, nbRemoved, removed);
+            else relatedRemoval(nbRequests, nbRemoved, removed);
+            int length = remove(current, removed, nbRemoved, candidate);
+            for (int k = 0; k < nbRemoved && length > 0; k++) {
+                length = CheapestInsertion.insert(g, candidate, length, 2 * removed[k] + 1, 2 * removed[k] + 2);
+            }
+            uses[operator]++;
+            double candidateCost = length == nbVertices ? LocalSearch.tourCost(g, candidate) : Double.POSITIVE_INFINITY;
+
+            if (candidateCost < bestCost - 1e-9) {
+                candidateCost = LocalSearch.improve(g, candidate, deadline);
+                publish(candidate, candidateCost, publisher);
+                scores[operator] += BEST_SCORE;
+            } else if (candidateCost < currentCost - 1e-9) {
+                scores[operator] += BETTER_SCORE;
+            } else if (random.nextDouble() < Math.exp((currentCost - candidateCost) / temperature)) {
+                scores[operator] += ACCEPTED_SCORE;
+            } else {
+                candidateCost = Double.POSITIVE_INFINITY;
+            }
+            if (candidateCost < Double.POSITIVE_INFINITY) {
+                int[] swap = current;
+                current = candidate;
+                candidate = swap;
+                currentCost = candidateCost;
+            }
+
+            if (nbIterations % SEGMENT_LENGTH == 0) {
+                for (int o = 0; o < weights.length; o++) {
+                    if (uses[o] > 0) weights[o] = (1 - REACTION) * weights[o] + REACTION * scores[o] / uses[o];
+                    weights[o] = Math.max(weights[o], 0.1);
+                    scores[o] = 0;
+                    uses[o] = 0;
+                }
+            }
+        }
+        publisher.close();
+        tour.setTourComputed(true);
+    }
+
+    /**
+     * Limit the number of iterations of the next searches, the temperature then decreasing along the iterations
+     * @param maxIterations the maximal number of iterations, 0 for no limit but the time limit
+     */
+    public void setMaxIterations(long maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Choose requests to remove at random
+     * @param nbRequests the number of requests
+     * @param nbRemoved the number of requests to remove
+     * @param removed the array to fill with the removed requests
+     */
+    private void randomRemoval(int nbRequests, int nbRemoved, int[] removed) {
+        int nbChosen = 0;
+        while (nbChosen < nbRemoved) {
+            int request = random.nextInt(nbRequests);
+            if (!contains(removed, nbChosen, request)) removed[nbChosen++] = request;
+        }
+    }
+
+    /**
+     * Choose a request at random and the requests whose pickup and delivery are close to its own, with some
+     * randomness so that the same requests are not always removed together
+     * @param nbRequests the number of requests
+     * @param nbRemoved the number of requests to remove
+     * @param removed the array to fill with the removed requests
+     */
+    private void relatedRemoval(int nbRequests, int nbRemoved, int[] removed) {
+        int reference = random.nextInt(nbRequests);
+        for (int r = 0, k = 0; r < nbRequests; r++) {
+            if (r == reference) continue;
+            double relatedness = distance(2 * reference + 1, 2 * r + 1) + distance(2 * reference + 2, 2 * r + 2);
+            // the bits of a positive float grow with its value: the relatedness in the high bits and the request in
+            // the low bits sort the requests with a primitive sort
+            relatedRequests[k++] = (long) Float.floatToIntBits((float) relatedness) << 32 | r;
+        }
+        Arrays.sort(relatedRequests);
+        Arrays.fill(taken, false);
+        removed[0] = reference;
+        for (int nbChosen = 1; nbChosen < nbRemoved; nbChosen++) {
+            // index among the requests not taken yet, biased towards the closest ones
+            int index = (int) (Math.pow(random.nextDouble(), RELATEDNESS) * (relatedRequests.length - nbChosen + 1));
+            int k = -1;
+            while (index >= 0) if (!taken[++k]) index--;
+            taken[k] = true;
+            removed[nbChosen] = (int) relatedRequests[k];
+        }
+    }
+
+    /**
+     * @param i a vertex
+     * @param j another vertex
+     * @return the cost of the cheapest arc between the two vertices
+     */
+    private double distance(int i, int j) {
+        return Math.min(CheapestInsertion.arcCost(g, i, j), CheapestInsertion.arcCost(g, j, i));
+    }
+
+    /**
+     * Copy a tour without the pickups and deliveries of some requests
+     * @param order the tour
+     * @param removed the removed requests
+     * @param nbRemoved the number of removed requests
+     * @param result the array receiving the partial tour
+     * @return the number of vertices of the partial tour
+     */
+    private static int remove(int[] order, int[] removed, int nbRemoved, int[] result) {
+        int length = 0;
+        for (int vertex : order) {
+            if (vertex == 0 || !contains(removed, nbRemoved, (vertex - 1) / 2)) result[length++] = vertex;
+        }
+        return length;
+    }
+
+    /**
+     * @param values an array
+     * @param length the number of meaningful cells of the array
+     * @param value the value to look for
+     * @return whether the first cells of <code>values</code> contain <code>value</code>
+     */
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) if (values[i] == value) return true;
+        return false;
+    }
+
+    /**
+     * Record a new best tour and post it to the publisher
+     * @param order the order of the vertices
+     * @param cost the cost of the tour
+     * @param publisher the channel through which the tour is published
+     */
+    private void publish(int[] order, double cost, SolutionPublisher publisher) {
+        if (cost == Double.POSITIVE_INFINITY) return;
+        bestSol = order.clone();
+        bestCost = cost;
+        publisher.post(order, cost);
+    }
+
+    /**
+     * Getter for nbIterations attribute.
+     * @return the number of iterations of the last search
+     */
+    public long getNbIterations() {
+        return nbIterations;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        return bestSol != null ? bestCost : -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        return bestSol;
+    }
+}
@@ -0,0 +1,178 @@
+package model;
+
+/**
+ * Improvement of a tour by local search, keeping the precedence constraints of the graph (every pickup before its
+ * delivery). Vertex 0 is the depot.
+ * Two neighbourhoods are explored until no move improves the tour:
+ * Or-opt moves a segment of up to three consecutive vertices elsewhere in the tour, and 2-opt reverses a segment.
+ * The costs may be asymmetric, so the cost of a reversed segment is computed along with the segment.
+ */
+public class LocalSearch {
+
+    /**
+     * The maximal length of the segments moved by Or-opt
+     */
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    /**
+     * Improve a tour until it is a local optimum or the deadline is reached
+     * @param g the graph with all the costs
+     * @param order the tour starting from vertex 0, modified in place
+     * @param deadline the time at which the search must stop, in milliseconds since epoch
+     * @return the cost of the improved tour
+     */
+    public static double improve(Graph g, int[] order, long deadline) {
+        int[] rank = new int[order.length];
+        boolean improved = true;
+        while (improved && System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < order.length; i++) rank[order[i]] = i;
+            improved = orOpt(g, order, rank) || twoOpt(g, order, rank);
+        }
+        return tourCost(g, order);
+    }
+
+    /**
+     * @param g the graph with all the costs
+     * @param order the tour starting from vertex 0
+     * @return the cost of the tour coming back to vertex 0, infinite if an arc is missing
+     */
+    public static double tourCost(Graph g, int[] order) {
+        double cost = 0;
+        for (int i = 0; i < order.length; i++) cost += arc(g, order, i, i + 1);
+        return cost;
+    }
+
+    /**
+     * Apply the first improving Or-opt move
+     * @param g the graph with all the costs
+     * @param order the tour
+     * @param rank the position of each vertex in the tour
+     * @return whether a move has been applied
+     */
+    private static boolean orOpt(Graph g, int[] order, int[] rank) {
+        Precedence precedence = g.getPrecedence();
+        int n = order.length;
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            for (int start = 1; start + length <= n; start++) {
+                int end = start + length - 1;
+                double removalGain = arc(g, order, start - 1, start) + arc(g, order, end, end + 1)
+                        - CheapestInsertion.arcCost(g, order[start - 1], vertexAt(order, end + 1));
+                if (removalGain <= 0) continue;
+                // the segment can't go before a predecessor of one of its vertices, nor after one of their successors
+                int lowest = 0;
+                int highest = n;
+                for (int k = start; k <= end; k++) {
+                    for (int predecessor : precedence.getPredecessors(order[k])) {
+                        if (rank[predecessor] < start) lowest = Math.max(lowest, rank[predecessor]);
+                    }
+                    for (int successor : precedence.getSuccessors(order[k])) {
+                        if (rank[successor] > end) highest = Math.min(highest, rank[successor]);
+                    }
+                }
+                // insertion between the vertices at positions position and position + 1
+                for (int position = lowest; position < highest; position++) {
+                    if (position >= start - 1 && position <= end) continue;
+                    int before = order[position];
+                    int after = vertexAt(order, position + 1);
+                    double delta = CheapestInsertion.arcCost(g, before, order[start])
+                            + CheapestInsertion.arcCost(g, order[end], after)
+                            - CheapestInsertion.arcCost(g, before, after) - removalGain;
+                    if (delta < -1e-9) {
+                        moveSegment(order, start, end, position);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move a segment of a tour after another position
+     * @param order the tour
+     * @param start the position of the first vertex of the segment
+     * @param end the position of the last vertex of the segment
+     * @param position the position of the vertex after which the segment is inserted, outside the segment
+     */
+    private static void moveSegment(int[] order, int start, int end, int position) {
+        int length = end - start + 1;
+        int[] segment = new int[length];
+        System.arraycopy(order, start, segment, 0, length);
+        if (position < start) {
+            System.arraycopy(order, position + 1, order, position + 1 + length, start - position - 1);
+            System.arraycopy(segment, 0, order, position + 1, length);
+        } else {
+            System.arraycopy(order, end + 1, order, start, position - end);
+            System.arraycopy(segment, 0, order, position - length + 1, length);
+        }
+    }
+
+    /**
+     * Apply the first improving 2-opt move
+     * @param g the graph with all the costs
+     * @param order the tour
+     * @param rank the position of each vertex in the tour
+     * @return whether a move has been applied
+     */
+    private static boolean twoOpt(Graph g, int[] order, int[] rank) {
+        Precedence precedence = g.getPrecedence();
+        int n = order.length;
+        for (int start = 1; start < n - 1; start++) {
+            double forward = 0;
+            double backward = 0;
+            for (int end = start + 1; end < n; end++) {
+                int vertex = order[end];
+                // reversing a vertex and one of its predecessors breaks the precedence, for every longer segment too
+                if (hasPredecessorAfter(precedence, vertex, rank, start)) break;
+                forward += arc(g, order, end - 1, end);
+                backward += CheapestInsertion.arcCost(g, vertex, order[end - 1]);
+                double delta = CheapestInsertion.arcCost(g, order[start - 1], vertex)
+                        + CheapestInsertion.arcCost(g, order[start], vertexAt(order, end + 1)) + backward
+                        - arc(g, order, start - 1, start) - arc(g, order, end, end + 1) - forward;
+                if (delta < -1e-9) {
+                    for (int i = start, j = end; i < j; i++, j--) {
+                        int swap = order[i];
+                        order[i] = order[j];
+                        order[j] = swap;
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param precedence the precedence constraints
+     * @param vertex a vertex
+     * @param rank the position of each vertex in the tour
+     * @param start a position in the tour
+     * @return whether a predecessor of <code>vertex</code> is at <code>start</code> or after
+     */
+    private static boolean hasPredecessorAfter(Precedence precedence, int vertex, int[] rank, int start) {
+        for (int predecessor : precedence.getPredecessors(vertex)) {
+            if (rank[predecessor] >= start) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param order the tour
+     * @param position a position in the tour, or the length of the tour for the return to vertex 0
+     * @return the vertex at this position
+     */
+    private static int vertexAt(int[] order, int position) {
+        return position < order.length ? order[position] : 0;
+    }
+
+    /**
+     * @param g the graph with all the costs
+     * @param order the tour
+     * @param from the position of the origin of the arc
+     * @param to the position of the end of the arc
+     * @return the cost of the arc between the vertices at the two positions
+     */
+    private static double arc(Graph g, int[] order, int from, int to) {
+        return CheapestInsertion.arcCost(g, vertexAt(order, from), vertexAt(order, to));
+    }
+}
@@ -1,50 +1,41 @@
 package model;
 
-import java.util.*;
-
 /**
  * The iterator use for the TSP
  */
-public class MinIter implements Iterator<Integer> {
-
-    /* ATTRIBUTES */
+public class MinIter extends CandidateIterator {
 
     /**
-     * The vertices a vertex can reach, ordered by ascending cost
+     * Create an iterator able to traverse the successors of any vertex of a graph
+     * @param nbVertices the number of vertices of the graph
      */
-    private final PriorityQueue<Integer> candidates;
+    public MinIter(int nbVertices) {
+        super(nbVertices);
+    }
 
     /**
-     * Create an iterator to traverse the set of vertices in <code>unvisited</code>
-     * which are successors of <code>currentVertex</code> in <code>g</code>
-     * Vertices are traversed in the same order as in <code>unvisited</code>
-     * @param unvisited the unvisited vertex
+     * Traverse the unvisited successors of <code>currentVertex</code> in <code>costs</code>, ordered by ascending cost
+     * from <code>currentVertex</code>.
+     * The successors sorted once by the cost matrix are walked from the farthest to the nearest and filtered with the
+     * bitset of visited vertices, so that the nearest candidate is at the end of the buffer and returned first.
      * @param currentVertex the current vertex
-     * @param g the graph containing all the costs
+     * @param unvisited the unvisited vertices
+     * @param nbUnvisited the number of unvisited vertices
+     * @param visited the bitset of visited vertices
+     * @param costs the cost matrix of the graph
      */
-    public MinIter(Collection<Integer> unvisited, int currentVertex, Graph g){
-        this.candidates = new PriorityQueue<>(Comparator.comparingDouble(vertex -> g.getCost(currentVertex, vertex)));
-        for (Integer s : unvisited){
-            // if we found a delivery Address and the pick-up linked is in the unvisited nodes,
-            // we don't add the delivery address to the candidates
-            if (g.isArc(currentVertex, s) && !(s % 2 == 0 && unvisited.contains(s - 1))) {
-                candidates.add(s);
+    @Override
+    public void reset(int currentVertex, int[] unvisited, int nbUnvisited, long[] visited, CostMatrix costs) {
+        int[] successors = costs.getSortedSuccessors(currentVertex);
+        Precedence precedence = costs.getPrecedence();
+        nbCandidates = 0;
+        for (int i = successors.length - 1; i >= 0; i--) {
+            int s = successors[i];
+            // a delivery is only a candidate once its pick-up (every predecessor in general) has been visited
+            if (!TemplateTSP.isVisited(visited, s) && precedence.isEligible(s, visited)) {
+                candidates[nbCandidates++] = s;
             }
         }
-
     }
 
-    @Override
-    public boolean hasNext() {
-        return candidates.size() > 0;
-    }
-
-    @Override
-    public Integer next() {
-        return candidates.poll();
-    }
-
-    @Override
-    public void remove() {}
-
 }
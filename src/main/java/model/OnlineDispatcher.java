@@ -0,0 +1,324 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Online dispatch of the requests arriving while the courier is on its tour.
+ * The new requests are queued, and a dispatch thread inserts each of them at once at its cheapest place after the
+ * stop where the courier is, so that the tour always covers every received request. A background optimizer thread
+ * keeps improving the part of the tour not visited yet: it solves a copy of the tour whose visited stops are fixed by
+ * precedence constraints, starting from the current order, and then swaps the improved order into the tour in a single
+ * step, only if the tour hasn't changed in the meantime. Every change of the tour is made under the lock of the tour,
+ * and builds a new list of paths which the tour assigns once complete. After each change, the route is published as
+ * a snapshot whose paths are copies, so that the route read by the view is always a complete and valid tour, which
+ * doesn't change afterwards.
+ */
+public class OnlineDispatcher {
+
+    /**
+     * Default maximal duration of an optimization of the tour, in milliseconds
+     */
+    public static final int DEFAULT_OPTIMIZATION_TIME = 1000;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The tour followed by the courier, whose lock guards every change
+     */
+    private final Tour tour;
+
+    /**
+     * The list with all intersections of the map
+     */
+    private final List<Intersection> allIntersections;
+
+    /**
+     * The copy of the planning solved by the optimizer, which keeps the shortest paths between two optimizations
+     */
+    private final Tour shadowTour = new Tour();
+
+    /**
+     * The requests received and not inserted yet
+     */
+    private final LinkedBlockingQueue<Request> pendingRequests = new LinkedBlockingQueue<>();
+
+    /**
+     * The number of requests received and not inserted yet, including the one being inserted
+     */
+    private final AtomicInteger nbPendingRequests = new AtomicInteger();
+
+    /**
+     * The number of changes of the tour, guarded by the lock of the tour
+     */
+    private long version;
+
+    /**
+     * The last version of the tour which the optimizer has tried to improve, guarded by the lock of the tour
+     */
+    private long optimizedVersion = -1;
+
+    /**
+     * The number of stops of the tour already reached by the courier, guarded by the lock of the tour
+     */
+    private int nbVisitedStops;
+
+    /**
+     * The number of improved orders swapped into the tour
+     */
+    private long nbSwaps;
+
+    /**
+     * The maximal duration of an optimization of the tour, in milliseconds
+     */
+    private int optimizationTime = DEFAULT_OPTIMIZATION_TIME;
+
+    /**
+     * The route of the tour after its last change
+     */
+    private volatile List<ShortestPath> route;
+
+    /**
+     * Whether the dispatcher is running
+     */
+    private volatile boolean running;
+
+    /**
+     * The thread inserting the received requests, and the thread optimizing the tour
+     */
+    private Thread dispatchThread, optimizerThread;
+
+    /**
+     * Create a dispatcher for a tour
+     * @param tour the tour followed by the courier, computed or without any request
+     * @param allIntersections the list with all intersections of the map
+     */
+    public OnlineDispatcher(Tour tour, List<Intersection> allIntersections) {
+        this.tour = tour;
+        this.allIntersections = allIntersections;
+        shadowTour.setDepotAddress(tour.getDepotAddress());
+        if (tour.getDepartureTime() != null) shadowTour.setDepartureTime(tour.getDepartureTime());
+        // the branch and bound is the solver which keeps any precedence constraint, such as the fixed visited stops
+        shadowTour.getSolverRegistry().setForcedSolver(SolverRegistry.BRANCH_AND_BOUND);
+        route = snapshot(tour.getListShortestPaths());
+    }
+
+    /**
+     * Start the dispatch thread and the optimizer thread
+     */
+    public void start() {
+        running = true;
+        dispatchThread = new Thread(this::dispatch, "online-dispatch");
+        optimizerThread = new Thread(this::optimize, "online-optimizer");
+        dispatchThread.setDaemon(true);
+        optimizerThread.setDaemon(true);
+        dispatchThread.start();
+        optimizerThread.start();
+    }
+
+    /**
+     * Stop the threads and wait for them, the tour keeps its last valid order
+     */
+    public void stop() {
+        running = false;
+        shadowTour.setTourComputed(true);
+        dispatchThread.interrupt();
+        optimizerThread.interrupt();
+        try {
+            dispatchThread.join();
+            optimizerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Receive a new request, which is inserted in the tour as soon as possible
+     * @param request the new request
+     */
+    public void submit(Request request) {
+        nbPendingRequests.incrementAndGet();
+        pendingRequests.add(request);
+    }
+
+    /**
+     * Record the progress of the courier, the visited stops being kept in place by the next insertions and
+     * optimizations
+     * @param nbVisitedStops the number of stops of the tour reached by the courier after the depot
+     * @throws IllegalArgumentException if the tour has fewer stops
+     */
+    public void setNbVisitedStops(int nbVisitedStops) {
+        synchronized (tour) {
+            if (nbVisitedStops < 0 || nbVisitedStops >= Math.max(1, tour.getListShortestPaths().size()))
+                throw new IllegalArgumentException("The tour has no stop " + nbVisitedStops);
+            this.nbVisitedStops = nbVisitedStops;
+            changed();
+        }
+    }
+
+    /**
+     * Wait until every received request has been inserted and the optimizer has tried to improve the last tour
+     * @param timeout the maximal waiting time, in milliseconds
+     * @return whether the dispatcher is idle
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitIdle(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (tour) {
+            while (nbPendingRequests.get() > 0 || optimizedVersion != version) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                tour.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Insert the received requests one after the other, each at its cheapest place after the visited stops
+     */
+    private void dispatch() {
+        try {
+            while (running) {
+                Request request = pendingRequests.take();
+                synchronized (tour) {
+                    if (tour.getListShortestPaths().isEmpty()) {
+                        // the first request of the day, the tour is computed from the depot
+                        tour.addRequest(request);
+                        tour.setTourComputed(false);
+                        tour.computeTour(allIntersections);
+                    } else {
+                        new BestInsertion(tour, request, allIntersections, nbVisitedStops).insert();
+                    }
+                    nbPendingRequests.decrementAndGet();
+                    changed();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Improve the tour each time it changes: the order of the tour is solved again with its visited stops fixed, and
+     * the improved order replaces the order of the tour if the tour is still the one which has been solved
+     */
+    private void optimize() {
+        try {
+            while (running) {
+                int[] order;
+                int nbVisited;
+                long solvedVersion;
+                synchronized (tour) {
+                    while (optimizedVersion == version) tour.wait();
+                    solvedVersion = version;
+                    nbVisited = nbVisitedStops;
+                    order = currentOrder();
+                    // the requests are only added at the end of the planning
+                    List<Request> requests = tour.getPlanningRequests();
+                    for (int r = shadowTour.getPlanningRequests().size(); r < requests.size(); r++) shadowTour.addRequest(requests.get(r));
+                }
+                TSP tsp = null;
+                CompleteGraph g = null;
+                if (order != null && nbVisited < order.length - 1) {
+                    CompleteGraph fullGraph = shadowTour.buildCompleteGraph(allIntersections);
+                    g = new CompleteGraph(fullGraph.getTourNodes(), fixedPrefix(order, nbVisited));
+                    tsp = shadowTour.getSolverRegistry().select(g, optimizationTime);
+                    tsp.setInitialSolution(order);
+                    shadowTour.setTourComputed(false);
+                    tsp.searchSolution(optimizationTime, g, shadowTour);
+                }
+                synchronized (tour) {
+                    boolean swapped = false;
+                    if (version == solvedVersion && tsp != null && tsp.getBestSol() != null
+                            && tsp.getSolutionCost() < tour.getTourLength() - 1e-6) {
+                        tour.updateTourInformation(g.getTourNodes(), g.expandOrder(tsp.getBestSol()), tsp.getSolutionCost());
+                        nbSwaps++;
+                        changed();
+                        swapped = true;
+                    }
+                    // the swapped order is the result of the optimization, it isn't optimized again
+                    optimizedVersion = swapped ? version : solvedVersion;
+                    tour.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Record a change of the tour: publish its route and wake up the optimizer
+     */
+    private void changed() {
+        version++;
+        route = snapshot(tour.getListShortestPaths());
+        tour.notifyAll();
+    }
+
+    /**
+     * Copy a route of the tour
+     * @param paths the shortest paths of the tour
+     * @return an unmodifiable list with a copy of each path
+     */
+    private static List<ShortestPath> snapshot(List<ShortestPath> paths) {
+        return paths.stream().map(ShortestPath::new).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Read the order of the vertices from the route of the tour
+     * @return the order of the vertices starting from the depot, or null if the tour isn't complete
+     */
+    private int[] currentOrder() {
+        List<ShortestPath> paths = tour.getListShortestPaths();
+        int nbVertices = 2 * tour.getPlanningRequests().size() + 1;
+        if (paths.size() != nbVertices) return null;
+        int[] order = new int[nbVertices];
+        for (int k = 1; k < nbVertices; k++) order[k] = paths.get(k - 1).getEndNodeNumber();
+        return order;
+    }
+
+    /**
+     * Build the constraints of a planning whose first stops are fixed: each visited stop comes before the next one,
+     * and the last visited stop before all the other vertices
+     * @param order the order of the vertices of the tour
+     * @param nbVisited the number of stops already visited after the depot
+     * @return the precedence constraints
+     */
+    private static Precedence fixedPrefix(int[] order, int nbVisited) {
+        Precedence precedence = Precedence.pickupDelivery(order.length);
+        for (int k = 2; k <= nbVisited; k++) precedence.add(order[k - 1], order[k]);
+        if (nbVisited > 0) {
+            for (int k = nbVisited + 1; k < order.length; k++) precedence.add(order[nbVisited], order[k]);
+        }
+        return precedence;
+    }
+
+    /**
+     * Set the maximal duration of an optimization of the tour
+     * @param optimizationTime the duration, in milliseconds
+     */
+    public void setOptimizationTime(int optimizationTime) {
+        this.optimizationTime = optimizationTime;
+    }
+
+    /**
+     * Getter for route attribute.
+     * @return the route of the tour after its last change, which isn't modified afterwards
+     */
+    public List<ShortestPath> getRoute() {
+        return route;
+    }
+
+    /**
+     * Getter for nbSwaps attribute.
+     * @return the number of improved orders swapped into the tour
+     */
+    public long getNbSwaps() {
+        synchronized (tour) {
+            return nbSwaps;
+        }
+    }
+}
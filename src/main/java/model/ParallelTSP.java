@@ -0,0 +1,339 @@
+package model;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Parallel branch and bound on every core of the machine.
+ * The top levels of the search tree are split into fork/join tasks, balanced by work stealing, and every deeper
+ * subtree is explored by the sequential branch and bound of a <code>TemplateTSP</code> owned by the worker thread.
+ * All the workers share the same <code>Incumbent</code>: a better tour found by one of them prunes the search of
+ * all the others at once, and the tours are posted one at a time to the publisher which updates the <code>Tour</code>. The incumbent is seeded
+ * by a heuristic tour, followed by a limited discrepancy search, before the tasks are forked.
+ * The lower bound of the optimal cost is the lowest bound of the tasks not explored yet, which rises while the search
+ * goes on, and the best cost once every task has been explored. A task is open from its creation until its subtree
+ * has been explored, or until it has been split into its children which are open in its place.
+ * The memory given to the transposition tables is shared by the workers, each table getting an equal part of it.
+ */
+public class ParallelTSP implements TSP {
+
+    /**
+     * The number of vertices of the paths below which the search tree is split into tasks
+     */
+    private static final int SPLIT_DEPTH = 3;
+
+    /**
+     * The factory of the sequential solvers used by the workers
+     */
+    private final Supplier<TemplateTSP> solverFactory;
+
+    /**
+     * The number of worker threads
+     */
+    private final int parallelism;
+
+    /**
+     * The memory given to the transposition tables of all the workers together, in bytes (0 if no table is used)
+     */
+    private long transpositionTableSize = TranspositionTable.DEFAULT_SIZE;
+
+    /**
+     * The best solution found so far by the workers
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The sequential solver of each worker thread, for the current computation
+     */
+    private ThreadLocal<TemplateTSP> workers;
+
+    /**
+     * The graph studied
+     */
+    private Graph g;
+
+    /**
+     * The tour to which the solutions are published
+     */
+    private Tour tour;
+
+    /**
+     * The time at which the search must stop
+     */
+    private long deadline;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The maximal number of discrepancies of the limited discrepancy search run by the seeder, -1 to skip it
+     */
+    private int maxDiscrepancies = TemplateTSP.DEFAULT_MAX_DISCREPANCIES;
+
+    /**
+     * The cost of the best tour once the limited discrepancy search of the seeder is over, and the time spent until
+     * then in milliseconds, -1 if it hasn't run
+     */
+    private double discrepancyCost = -1;
+    private long discrepancyTime = -1;
+
+    /**
+     * The relative gap between the best cost and the lower bound at which the search stops (0 to prove optimality)
+     */
+    private double targetGap;
+
+    /**
+     * The lower bound of the cost of the tours given by the root of the search tree
+     */
+    private volatile double rootLowerBound;
+
+    /**
+     * The tasks whose subtree hasn't been explored yet, by increasing lower bound
+     */
+    private final ConcurrentSkipListSet<SubtreeSearch> openTasks = new ConcurrentSkipListSet<>(
+            Comparator.comparingDouble((SubtreeSearch task) -> task.bound).thenComparingLong(task -> task.id));
+
+    /**
+     * The number of tasks created by the current search, which gives each task its id
+     */
+    private final AtomicLong nbTasks = new AtomicLong();
+
+    /**
+     * Whether the whole search tree has been explored, the best tour being then optimal
+     */
+    private volatile boolean complete;
+
+    /**
+     * Whether a task has been skipped or stopped because the best tour was within the target gap
+     */
+    private volatile boolean targetGapReached;
+
+    /**
+     * Create a parallel search using every available core
+     * @param solverFactory the factory of the sequential solvers, which give the bound and the branching order
+     */
+    public ParallelTSP(Supplier<TemplateTSP> solverFactory) {
+        this(solverFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a parallel search
+     * @param solverFactory the factory of the sequential solvers, which give the bound and the branching order
+     * @param parallelism the number of worker threads
+     */
+    public ParallelTSP(Supplier<TemplateTSP> solverFactory, int parallelism) {
+        this.solverFactory = solverFactory;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void searchSolution(int timeLimit, Graph g, Tour tour) {
+        if (timeLimit <= 0) return;
+        long startTime = System.currentTimeMillis();
+        this.g = g;
+        this.tour = tour;
+        this.deadline = startTime + timeLimit;
+        Incumbent sharedIncumbent = new Incumbent(g.getNbVertices());
+        this.incumbent = sharedIncumbent;
+        complete = false;
+        targetGapReached = false;
+        openTasks.clear();
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        this.workers = ThreadLocal.withInitial(() -> {
+            TemplateTSP worker = solverFactory.get();
+            worker.setTranspositionTableSize(transpositionTableSize / parallelism);
+            worker.prepare(g, sharedIncumbent, publisher, startTime, deadline);
+            worker.setRootLowerBound(rootLowerBound);
+            worker.setTargetGap(targetGap);
+            return worker;
+        });
+        // the first tour is built on the calling thread, so that every task starts with its cost as upper bound
+        TemplateTSP seeder = solverFactory.get();
+        // the seeder doesn't explore any subtree
+        seeder.setTranspositionTableSize(0);
+        seeder.prepare(g, sharedIncumbent, publisher, startTime, deadline);
+        rootLowerBound = seeder.evaluate(new int[]{0}, 1, 0);
+        seeder.setRootLowerBound(rootLowerBound);
+        seeder.setTargetGap(targetGap);
+        seeder.setInitialSolution(initialSolution);
+        seeder.setMaxDiscrepancies(maxDiscrepancies);
+        seeder.seed(tour);
+        discrepancyCost = seeder.getDiscrepancyCost();
+        discrepancyTime = seeder.getDiscrepancyTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            SubtreeSearch root = new SubtreeSearch(new int[]{0}, 0, rootLowerBound);
+            openTasks.add(root);
+            pool.invoke(root);
+            // a task cut by the time limit returns after the deadline
+            complete = !tour.isTourComputed() && System.currentTimeMillis() < deadline && !targetGapReached && !seeder.isTargetGapReached();
+        } finally {
+            pool.shutdown();
+            publisher.close();
+            workers = null;
+        }
+        tour.setTourComputed(true);
+    }
+
+    /**
+     * Limit the memory of the transposition tables
+     * @param size the memory given to the tables of all the workers together, in bytes (0 to disable the tables)
+     */
+    public void setTranspositionTableSize(long size) {
+        this.transpositionTableSize = size;
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Change the limited discrepancy search run by the seeder before the tasks are forked
+     * @param maxDiscrepancies the number of discrepancies of the last pass (-1 to skip the limited discrepancy search)
+     */
+    public void setMaxDiscrepancies(int maxDiscrepancies) {
+        this.maxDiscrepancies = maxDiscrepancies;
+    }
+
+    /**
+     * Getter for discrepancyCost attribute.
+     * @return the cost of the best tour once the limited discrepancy search of the last search was over, -1 if it
+     * hasn't run
+     */
+    public double getDiscrepancyCost() {
+        return discrepancyCost;
+    }
+
+    /**
+     * Getter for discrepancyTime attribute.
+     * @return the time spent by the last search until its limited discrepancy search was over, in milliseconds, -1
+     * if it hasn't run
+     */
+    public long getDiscrepancyTime() {
+        return discrepancyTime;
+    }
+
+    @Override
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Getter for targetGapReached attribute.
+     * @return whether the last search has been stopped because its best tour was within the target gap
+     */
+    public boolean isTargetGapReached() {
+        return targetGapReached;
+    }
+
+    @Override
+    public double getLowerBound() {
+        if (incumbent == null) return -1;
+        if (complete) return incumbent.getCost();
+        double bound = rootLowerBound;
+        Iterator<SubtreeSearch> lowest = openTasks.iterator();
+        if (lowest.hasNext()) bound = Math.max(bound, lowest.next().bound);
+        return Math.min(bound, incumbent.getCost());
+    }
+
+    /**
+     * @return whether the best tour is within the target gap of the lowest bound of the open tasks
+     */
+    private boolean isWithinTargetGap() {
+        double cost = incumbent.getCost();
+        return targetGap > 0 && cost - getLowerBound() <= targetGap * cost;
+    }
+
+    @Override
+    public double getSolutionCost() {
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
+        return -1;
+    }
+
+    @Override
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
+    }
+
+    /**
+     * The exploration of the subtree of the search tree rooted at a path from vertex 0
+     */
+    private class SubtreeSearch extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The path from vertex 0 to the root of the subtree
+         */
+        private final int[] prefix;
+
+        /**
+         * The cost of the path
+         */
+        private final double cost;
+
+        /**
+         * A lower bound of the cost of the tours starting with the path
+         */
+        private final double bound;
+
+        /**
+         * The order of creation of the task, which tells apart the tasks with the same bound
+         */
+        private final long id = nbTasks.getAndIncrement();
+
+        SubtreeSearch(int[] prefix, double cost, double bound) {
+            this.prefix = prefix;
+            this.cost = cost;
+            this.bound = bound;
+        }
+
+        @Override
+        protected void compute() {
+            if (tour.isTourComputed() || System.currentTimeMillis() >= deadline) return;
+            if (isWithinTargetGap()) {
+                targetGapReached = true;
+                return;
+            }
+            // the worker is only borrowed while no other task can run on this thread
+            TemplateTSP worker = workers.get();
+            if (prefix.length >= SPLIT_DEPTH || prefix.length == g.getNbVertices()) {
+                worker.search(prefix, prefix.length, cost, tour);
+                if (worker.isTargetGapReached()) targetGapReached = true;
+                // a stopped search leaves its subtree open
+                if (!worker.isTimeLimitReached() && !worker.isTargetGapReached() && !tour.isTourComputed()) openTasks.remove(this);
+                return;
+            }
+            int[] children = new int[g.getNbVertices()];
+            int nbChildren = worker.expand(prefix, prefix.length, cost, children);
+            int last = prefix[prefix.length - 1];
+            List<SubtreeSearch> tasks = new ArrayList<>(nbChildren);
+            for (int i = 0; i < nbChildren; i++) {
+                int[] childPrefix = Arrays.copyOf(prefix, prefix.length + 1);
+                childPrefix[prefix.length] = children[i];
+                double childCost = cost + g.getCost(last, children[i]);
+                tasks.add(new SubtreeSearch(childPrefix, childCost, worker.evaluate(childPrefix, childPrefix.length, childCost)));
+            }
+            // the children are open before the task is closed, so that the lowest open bound never skips them
+            openTasks.addAll(tasks);
+            openTasks.remove(this);
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run tasks at the same time on a fixed number of daemon threads, so that a search left running never keeps the
+ * application alive, and wait for all of them.
+ */
+final class ParallelTasks {
+
+    private ParallelTasks() {}
+
+    /**
+     * Run tasks at the same time and wait for all of them. The threads are stopped when the tasks are over or when
+     * the waiting thread is interrupted.
+     * @param threadName the name of the threads
+     * @param nbThreads the number of threads
+     * @param tasks the tasks to run
+     * @param failure the message of the exception thrown if a task fails
+     * @throws IllegalStateException if a task has thrown an exception
+     */
+    static void runAll(String threadName, int nbThreads, List<Runnable> tasks, String failure) {
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ArrayList<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) futures.add(executor.submit(task));
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(failure, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
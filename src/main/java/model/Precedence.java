@@ -0,0 +1,148 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The precedence constraints between the vertices of a graph: a vertex may only be visited once all its predecessors
+ * have been visited. The predecessors of each vertex are compiled into a bitset with the same layout as the bitset of
+ * visited vertices of the search, so that checking a vertex is a single AND per word of 64 vertices, whatever the
+ * number of its predecessors. Any acyclic set of constraints is supported, such as a delivery waiting for several
+ * pickups. Vertex 0, the depot, is the start of the tour and can't be constrained.
+ */
+public class Precedence {
+
+    /* ATTRIBUTES */
+
+    /**
+     * The number of vertices of the graph
+     */
+    private final int nbVertices;
+
+    /**
+     * The number of words of a bitset of vertices
+     */
+    private final int nbWords;
+
+    /**
+     * The bitset of the predecessors of each vertex, <code>nbWords</code> words per vertex
+     */
+    private final long[] predecessorMasks;
+
+    /**
+     * The predecessors of each vertex
+     */
+    private final int[][] predecessors;
+
+    /**
+     * The successors of each vertex, the vertices which must be visited after it
+     */
+    private final int[][] successors;
+
+    /**
+     * Whether the constraints are exactly one pickup <code>2r+1</code> before each delivery <code>2r+2</code>
+     */
+    private boolean pickupDelivery;
+
+    /**
+     * Create precedence constraints without any constraint
+     * @param nbVertices the number of vertices of the graph
+     */
+    public Precedence(int nbVertices) {
+        this.nbVertices = nbVertices;
+        this.nbWords = (nbVertices + 63) >>> 6;
+        this.predecessorMasks = new long[nbVertices * nbWords];
+        this.predecessors = new int[nbVertices][0];
+        this.successors = new int[nbVertices][0];
+    }
+
+    /**
+     * Create the constraints of a planning: vertex 0 is the depot, and vertices <code>2r+1</code> and
+     * <code>2r+2</code> are the pickup and the delivery of request r, the pickup being visited before the delivery
+     * @param nbVertices the number of vertices of the graph
+     * @return the precedence constraints
+     */
+    public static Precedence pickupDelivery(int nbVertices) {
+        Precedence precedence = new Precedence(nbVertices);
+        for (int delivery = 2; delivery < nbVertices; delivery += 2) precedence.add(delivery - 1, delivery);
+        precedence.pickupDelivery = nbVertices % 2 == 1;
+        return precedence;
+    }
+
+    /**
+     * Add a constraint
+     * @param before the vertex which must be visited first
+     * @param after the vertex which must be visited after <code>before</code>
+     * @throws IllegalArgumentException if a vertex is the depot or both vertices are the same
+     */
+    public void add(int before, int after) {
+        if (before == after || before <= 0 || after <= 0 || before >= nbVertices || after >= nbVertices)
+            throw new IllegalArgumentException("Invalid precedence constraint " + before + " -> " + after);
+        if (isPredecessor(before, after)) return;
+        predecessorMasks[after * nbWords + (before >>> 6)] |= 1L << before;
+        predecessors[after] = Arrays.copyOf(predecessors[after], predecessors[after].length + 1);
+        predecessors[after][predecessors[after].length - 1] = before;
+        successors[before] = Arrays.copyOf(successors[before], successors[before].length + 1);
+        successors[before][successors[before].length - 1] = after;
+        pickupDelivery = false;
+    }
+
+    /**
+     * Check if a vertex may be visited next
+     * @param vertex the vertex to check
+     * @param visited the bitset of visited vertices
+     * @return whether every predecessor of <code>vertex</code> is in <code>visited</code>
+     */
+    public boolean isEligible(int vertex, long[] visited) {
+        int offset = vertex * nbWords;
+        for (int w = 0; w < nbWords; w++) {
+            if ((predecessorMasks[offset + w] & ~visited[w]) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param before a vertex
+     * @param after another vertex
+     * @return whether <code>before</code> is a direct predecessor of <code>after</code>
+     */
+    public boolean isPredecessor(int before, int after) {
+        return (predecessorMasks[after * nbWords + (before >>> 6)] & (1L << before)) != 0;
+    }
+
+    /**
+     * Check if an arc may belong to a tour: it doesn't go back to a predecessor, it doesn't leave the depot towards a
+     * constrained vertex, and it doesn't go back to the depot from a vertex with successors
+     * @param i origin vertex
+     * @param j end vertex
+     * @return whether the arc from <code>i</code> to <code>j</code> respects the constraints
+     */
+    public boolean isArcAllowed(int i, int j) {
+        if (i == 0) return predecessors[j].length == 0;
+        if (j == 0) return successors[i].length == 0;
+        return !isPredecessor(j, i);
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the vertices which must be visited before <code>vertex</code> (must not be modified)
+     */
+    public int[] getPredecessors(int vertex) {
+        return predecessors[vertex];
+    }
+
+    /**
+     * @param vertex a vertex
+     * @return the vertices which must be visited after <code>vertex</code> (must not be modified)
+     */
+    public int[] getSuccessors(int vertex) {
+        return successors[vertex];
+    }
+
+    /**
+     * @return whether the constraints are exactly one pickup <code>2r+1</code> before each delivery <code>2r+2</code>,
+     * which the solvers working request by request need
+     */
+    public boolean isPickupDelivery() {
+        return pickupDelivery;
+    }
+}
@@ -1,55 +1,38 @@
 package model;
 
-import java.util.*;
-
 /**
  * The iterator use for the TSP
  */
-public class SeqIter implements Iterator<Integer> {
-
-    /* ATTRIBUTES */
-
-    /**
-     * The vertex a vertex can reach
-     */
-    private final Integer[] candidates;
+public class SeqIter extends CandidateIterator {
 
     /**
-     * The number of vertex to visit remaining
+     * Create an iterator able to traverse the successors of any vertex of a graph
+     * @param nbVertices the number of vertices of the graph
      */
-    private int nbCandidates;
+    public SeqIter(int nbVertices) {
+        super(nbVertices);
+    }
 
     /**
-     * Create an iterator to traverse the set of vertices in <code>unvisited</code>
-     * which are successors of <code>currentVertex</code> in <code>g</code>
-     * Vertices are traversed in the same order as in <code>unvisited</code>
-     * @param unvisited the unvisited vertex
+     * Traverse the set of vertices in <code>unvisited</code> which are successors of <code>currentVertex</code> in
+     * <code>costs</code>. Vertices are traversed in the reverse order of <code>unvisited</code>
      * @param currentVertex the current vertex
-     * @param g the graph containing all the costs
+     * @param unvisited the unvisited vertices
+     * @param nbUnvisited the number of unvisited vertices
+     * @param visited the bitset of visited vertices
+     * @param costs the cost matrix of the graph
      */
-    public SeqIter(Collection<Integer> unvisited, int currentVertex, Graph g){
-        this.candidates = new Integer[unvisited.size()];
-        for (Integer s : unvisited){
-            // if we found a delivery Address and the pick-up linked is in the unvisited nodes, we don't add the delivery address to the candidates
-            if (g.isArc(currentVertex, s) && !(s % 2 == 0 && unvisited.contains(s - 1))) {
+    @Override
+    public void reset(int currentVertex, int[] unvisited, int nbUnvisited, long[] visited, CostMatrix costs) {
+        Precedence precedence = costs.getPrecedence();
+        nbCandidates = 0;
+        for (int i = 0; i < nbUnvisited; i++) {
+            int s = unvisited[i];
+            // a delivery is only a candidate once its pick-up (every predecessor in general) has been visited
+            if (costs.arc(currentVertex, s) && precedence.isEligible(s, visited)) {
                 candidates[nbCandidates++] = s;
             }
         }
-
     }
 
-    @Override
-    public boolean hasNext() {
-        return nbCandidates > 0;
-    }
-
-    @Override
-    public Integer next() {
-        nbCandidates--;
-        return candidates[nbCandidates];
-    }
-
-    @Override
-    public void remove() {}
-
 }
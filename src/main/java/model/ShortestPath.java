@@ -59,6 +59,17 @@ public class ShortestPath implements Comparable<ShortestPath> {
         this.endAddress = endAddress;
     }
 
+    /**
+     * Copy constructor, the copy having its own list of segments
+     * @param shortestPath the shortest path to copy
+     */
+    public ShortestPath(ShortestPath shortestPath) {
+        this(shortestPath.pathLength, new ArrayList<>(shortestPath.listSegments), shortestPath.startAddress, shortestPath.endAddress);
+        this.startNodeNumber = shortestPath.startNodeNumber;
+        this.endNodeNumber = shortestPath.endNodeNumber;
+        this.selected = shortestPath.selected;
+    }
+
     /* GETTERS */
 
     public double getPathLength() {
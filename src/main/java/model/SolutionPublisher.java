@@ -0,0 +1,176 @@
+package model;
+
+/**
+ * The channel through which a TSP search publishes its improving solutions to the tour.
+ * Updating the tour (rebuilding its shortest paths and times, and notifying the observers which repaint the view) is
+ * much slower than finding a better solution during a burst of improvements. The search thread therefore only posts
+ * the order of the vertices, copied into a buffer, and a consumer thread updates the tour with the latest posted
+ * solution at most once per interval. Solutions posted in between overwrite each other: only the latest one matters.
+ * Closing the publisher publishes the last posted solution before returning, so that the tour holds the best solution
+ * once the search is over.
+ * Only the searches on a <code>CompleteGraph</code> update the tour, the other graphs (such as a bare
+ * <code>CostMatrix</code>) having no nodes to rebuild its shortest paths from.
+ */
+public class SolutionPublisher {
+
+    /**
+     * The minimal time between two updates of the tour, in milliseconds (10 updates per second)
+     */
+    public static final long DEFAULT_INTERVAL = 100;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The tour to update
+     */
+    private final Tour tour;
+
+    /**
+     * The graph of the search, which gives the nodes of the tour, null if it isn't a complete graph
+     */
+    private final CompleteGraph graph;
+
+    /**
+     * The minimal time between two updates of the tour, in milliseconds
+     */
+    private final long interval;
+
+    /**
+     * The latest posted solution not published yet
+     */
+    private int[] pending;
+
+    /**
+     * The cost of the latest posted solution
+     */
+    private double pendingCost;
+
+    /**
+     * Whether a posted solution hasn't been published yet
+     */
+    private boolean hasPending;
+
+    /**
+     * Whether the search is over
+     */
+    private boolean closed;
+
+    /**
+     * The number of posted solutions
+     */
+    private long nbPosts;
+
+    /**
+     * The number of updates of the tour
+     */
+    private volatile long nbPublications;
+
+    /**
+     * The thread updating the tour
+     */
+    private final Thread consumer;
+
+    /**
+     * Create a publisher updating a tour at most 10 times per second
+     * @param tour the tour to update
+     * @param g the graph of the search
+     */
+    public SolutionPublisher(Tour tour, Graph g) {
+        this(tour, g, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Create a publisher and start its consumer thread
+     * @param tour the tour to update
+     * @param g the graph of the search
+     * @param interval the minimal time between two updates of the tour, in milliseconds
+     */
+    public SolutionPublisher(Tour tour, Graph g, long interval) {
+        this.tour = tour;
+        this.graph = g instanceof CompleteGraph ? (CompleteGraph) g : null;
+        this.interval = interval;
+        this.pending = new int[g.getNbVertices()];
+        this.consumer = new Thread(this::consume, "tour-publisher");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Post a solution, replacing the posted solution not published yet. The order is copied, so the caller may
+     * modify it afterwards.
+     * @param order the order of the vertices, starting from vertex 0
+     * @param cost the cost of the solution
+     */
+    public synchronized void post(int[] order, double cost) {
+        System.arraycopy(order, 0, pending, 0, pending.length);
+        pendingCost = cost;
+        hasPending = true;
+        nbPosts++;
+        notifyAll();
+    }
+
+    /**
+     * Publish the last posted solution if it hasn't been yet, and stop the consumer thread
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Update the tour with the latest posted solution each time one is posted, waiting for the end of the interval
+     * since the previous update unless the publisher is closed
+     */
+    private void consume() {
+        int[] order = new int[pending.length];
+        long lastPublicationTime = 0;
+        try {
+            while (true) {
+                double cost;
+                synchronized (this) {
+                    while (!hasPending && !closed) wait();
+                    if (!hasPending) return;
+                    long remaining = lastPublicationTime + interval - System.currentTimeMillis();
+                    while (remaining > 0 && !closed) {
+                        wait(remaining);
+                        remaining = lastPublicationTime + interval - System.currentTimeMillis();
+                    }
+                    // the latest solution is swapped with the buffer of the previous one, nothing is allocated
+                    int[] latest = pending;
+                    pending = order;
+                    order = latest;
+                    cost = pendingCost;
+                    hasPending = false;
+                }
+                if (graph != null) tour.updateTourInformation(graph.getTourNodes(), graph.expandOrder(order), cost);
+                nbPublications++;
+                lastPublicationTime = System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Getter for nbPosts attribute.
+     * @return the number of posted solutions
+     */
+    public synchronized long getNbPosts() {
+        return nbPosts;
+    }
+
+    /**
+     * Getter for nbPublications attribute.
+     * @return the number of updates of the tour
+     */
+    public long getNbPublications() {
+        return nbPublications;
+    }
+}
@@ -0,0 +1,193 @@
+package model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The TSP solvers available to compute a tour, and the choice of the solver suited to a graph.
+ * By default the solver depends on the size of the graph and on the time limit:
+ * <ul>
+ *     <li>dynamic programming up to <code>HeldKarpTSP.MAX_REQUESTS</code> requests, which is exact and fast, fewer
+ *     requests if the time limit is below <code>MIN_DYNAMIC_PROGRAMMING_TIME</code></li>
+ *     <li>parallel branch and bound up to <code>MAX_BRANCH_AND_BOUND_VERTICES</code> vertices, if the time limit
+ *     leaves it a chance to prove the optimality</li>
+ *     <li>large neighbourhood search beyond, which quickly gives a good tour</li>
+ * </ul>
+ * A solver may be forced by its name, from the <code>tsp.solver</code> system property or from the command line,
+ * and other solvers may be registered. The parallel solvers use as many threads as the parallelism of the registry,
+ * one per processor unless several tours are computed at the same time.
+ */
+public class SolverRegistry {
+
+    /**
+     * The name meaning that the solver is chosen from the size of the graph
+     */
+    public static final String AUTOMATIC = "auto";
+
+    /**
+     * The names of the solvers chosen from the size of the graph
+     */
+    public static final String DYNAMIC_PROGRAMMING = "dp", BRANCH_AND_BOUND = "bnb", LARGE_NEIGHBOURHOOD_SEARCH = "lns";
+
+    /**
+     * The system property giving the name of the forced solver
+     */
+    public static final String SOLVER_PROPERTY = "tsp.solver";
+
+    /**
+     * The minimal time limit given to a dynamic programming of <code>HeldKarpTSP.MAX_REQUESTS</code> requests, in
+     * milliseconds, each request fewer dividing it by 3
+     */
+    public static final int MIN_DYNAMIC_PROGRAMMING_TIME = 1000;
+
+    /**
+     * The maximal number of vertices of a graph solved by branch and bound
+     */
+    public static final int MAX_BRANCH_AND_BOUND_VERTICES = 29;
+
+    /**
+     * The minimal time limit given to a branch and bound, in milliseconds
+     */
+    public static final int MIN_BRANCH_AND_BOUND_TIME = 1000;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The factories of the solvers, by name
+     */
+    private final Map<String, Supplier<TSP>> solvers = new LinkedHashMap<>();
+
+    /**
+     * The name of the solver used for every graph, or <code>AUTOMATIC</code>
+     */
+    private String forcedSolver;
+
+    /**
+     * The number of threads of the parallel solvers
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Create a registry with the solvers of the application, the forced solver being read from the system properties.
+     * An unknown solver name in the system properties is ignored with a warning.
+     */
+    public SolverRegistry() {
+        register(DYNAMIC_PROGRAMMING, HeldKarpTSP::new);
+        register(BRANCH_AND_BOUND, () -> new ParallelTSP(TSP4::new, parallelism));
+        register(LARGE_NEIGHBOURHOOD_SEARCH, LargeNeighbourhoodSearchTSP::new);
+        // the assignment bound of TSP5 keeps the open list the smallest, and the best-first order isn't slower with it
+        register("best-first", () -> new BestFirstTSP(TSP5::new));
+        register("aco", () -> new AntColonyTSP(new Random(), parallelism));
+        register("genetic", () -> new GeneticTSP(new Random(), parallelism));
+        register("beam", BeamSearchTSP::new);
+        register("tsp1", TSP1::new);
+        register("tsp2", TSP2::new);
+        register("tsp3", TSP3::new);
+        register("tsp3-lds", () -> {
+            TSP3 tsp = new TSP3();
+            tsp.setMaxDiscrepancies(TemplateTSP.DEFAULT_MAX_DISCREPANCIES);
+            return tsp;
+        });
+        register("tsp4", TSP4::new);
+        register("tsp5", TSP5::new);
+        String name = System.getProperty(SOLVER_PROPERTY, AUTOMATIC);
+        if (AUTOMATIC.equals(name) || solvers.containsKey(name)) {
+            this.forcedSolver = name;
+        } else {
+            // every tour builds a registry, a mistyped property mustn't prevent the application from starting
+            System.err.println("Unknown TSP solver " + name + " in " + SOLVER_PROPERTY + ", the solver is chosen from the size of the graph");
+            this.forcedSolver = AUTOMATIC;
+        }
+    }
+
+    /**
+     * Add a solver, or replace the solver with the same name
+     * @param name the name of the solver
+     * @param factory the factory creating a new solver for each computation
+     */
+    public void register(String name, Supplier<TSP> factory) {
+        solvers.put(name, factory);
+    }
+
+    /**
+     * Force the solver used for every graph
+     * @param name the name of a registered solver, or <code>AUTOMATIC</code> to choose it from the size of the graph
+     * @throws IllegalArgumentException if no solver has this name
+     */
+    public void setForcedSolver(String name) {
+        if (!AUTOMATIC.equals(name) && !solvers.containsKey(name))
+            throw new IllegalArgumentException("Unknown TSP solver " + name + ", expected " + AUTOMATIC + " or one of " + solvers.keySet());
+        this.forcedSolver = name;
+    }
+
+    /**
+     * Getter for forcedSolver attribute.
+     * @return the name of the solver used for every graph, or <code>AUTOMATIC</code>
+     */
+    public String getForcedSolver() {
+        return forcedSolver;
+    }
+
+    /**
+     * Set the number of threads of the parallel solvers created from now on
+     * @param parallelism the number of threads, at least 1
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Getter for parallelism attribute.
+     * @return the number of threads of the parallel solvers
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return the names of the registered solvers
+     */
+    public Set<String> getSolverNames() {
+        return solvers.keySet();
+    }
+
+    /**
+     * Choose the name of the solver of a graph
+     * @param g the graph with all the costs
+     * @param timeLimit the time limit of the computation, in milliseconds
+     * @return the name of the forced solver, or of the solver suited to the size of the graph
+     */
+    public String selectName(Graph g, int timeLimit) {
+        if (!AUTOMATIC.equals(forcedSolver)) return forcedSolver;
+        int nbVertices = g.getNbVertices();
+        boolean pickupDelivery = g.getPrecedence().isPickupDelivery();
+        if (pickupDelivery && (nbVertices - 1) / 2 <= maxDynamicProgrammingRequests(timeLimit)) return DYNAMIC_PROGRAMMING;
+        if (nbVertices <= MAX_BRANCH_AND_BOUND_VERTICES && timeLimit >= MIN_BRANCH_AND_BOUND_TIME) return BRANCH_AND_BOUND;
+        // the large neighbourhood search works request by request
+        return pickupDelivery ? LARGE_NEIGHBOURHOOD_SEARCH : BRANCH_AND_BOUND;
+    }
+
+    /**
+     * @param timeLimit the time limit of the computation, in milliseconds
+     * @return the maximal number of requests of a planning solved by dynamic programming within the time limit
+     */
+    static int maxDynamicProgrammingRequests(int timeLimit) {
+        int maxRequests = HeldKarpTSP.MAX_REQUESTS;
+        // the time of the dynamic programming is divided by about 3 with each request fewer
+        for (long time = MIN_DYNAMIC_PROGRAMMING_TIME; time > timeLimit && maxRequests > 0; time /= 3) maxRequests--;
+        return maxRequests;
+    }
+
+    /**
+     * Create the solver of a graph
+     * @param g the graph with all the costs
+     * @param timeLimit the time limit of the computation, in milliseconds
+     * @return a new solver, the forced one or the one suited to the size of the graph
+     */
+    public TSP select(Graph g, int timeLimit) {
+        return solvers.get(selectName(g, timeLimit)).get();
+    }
+}
@@ -19,5 +19,43 @@ public interface TSP {
      */
     double getSolutionCost();
 
-    Integer[] getBestSol();
+    /**
+     * @return the order of the vertices in the solution computed by <code>searchSolution</code>
+     */
+    int[] getBestSol();
+
+    /**
+     * Start the next search from a known tour instead of a tour built from scratch, so that the search only has to
+     * improve it. Solvers which can't use it ignore it.
+     * @param order the order of the vertices of the tour, starting from vertex 0 and respecting the precedence
+     *              constraints of the graph of the next search
+     */
+    default void setInitialSolution(int[] order) {}
+
+    /**
+     * Stop the search once its best tour is proven to be within a relative gap of the optimal tour, instead of
+     * spending the rest of the time limit on proving the last fraction of a percent. Solvers which can't prove a lower
+     * bound ignore it.
+     * @param targetGap the relative gap, such as 0.01 for 1% (0 to search until the optimality is proven)
+     */
+    default void setTargetGap(double targetGap) {}
+
+    /**
+     * @return a lower bound of the cost of the optimal tour, proven by the current or the last search, which may be
+     * read while the search runs (-1 if the solver doesn't prove any)
+     */
+    default double getLowerBound() {
+        return -1;
+    }
+
+    /**
+     * @return the relative gap between the cost of the best tour and the lower bound of the optimal cost, 0 when the
+     * best tour is proven optimal (-1 if it is unknown)
+     */
+    default double getOptimalityGap() {
+        double lowerBound = getLowerBound();
+        double cost = getSolutionCost();
+        if (lowerBound < 0 || cost <= 0 || cost == Double.MAX_VALUE) return -1;
+        return Math.max(0, (cost - lowerBound) / cost);
+    }
 }
\ No newline at end of file
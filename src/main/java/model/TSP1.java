@@ -1,20 +1,17 @@
 package model;
 
-import java.util.Collection;
-import java.util.Iterator;
-
 /**
  * The redefinition of two parameters of the tsp : the bound and the iterator
  */
 public class TSP1 extends TemplateTSP {
     @Override
-    protected double bound(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited, Graph g) {
         return 0;
     }
 
     @Override
-    protected Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
-        return new SeqIter(unvisited, currentVertex, g);
+    protected CandidateIterator iterator(Graph g) {
+        return new SeqIter(g.getNbVertices());
     }
 
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package model;
 
-import java.util.Collection;
-
 public class TSP2 extends TSP1 {
     /**
      * Custom bound method.
@@ -9,26 +7,29 @@ public class TSP2 extends TSP1 {
      * to vertex 0 or any other unvisited vertices.
      * @param currentVertex
      * @param unvisited
+     * @param nbUnvisited
      * @param g
      * @return
      */
     @Override
-    protected double bound(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited, Graph g) {
 
         double evaluation = 0;
 
         //Min cost for current vertex
         double minCostFromCurrent = Integer.MAX_VALUE;
-        for(int i : unvisited) {
-            if(g.getCost(currentVertex, i) < minCostFromCurrent && g.getCost(currentVertex, i)!=-1) {
-                minCostFromCurrent = g.getCost(currentVertex, i);
+        for(int k = 0; k < nbUnvisited; k++) {
+            int i = unvisited[k];
+            if(costs.cost(currentVertex, i) < minCostFromCurrent && costs.cost(currentVertex, i)!=-1) {
+                minCostFromCurrent = costs.cost(currentVertex, i);
             }
 
             //Min cost for unvisited vertex
-            double minCost = g.getCost(i, 0);
-            for(int j : unvisited) {
-                if( g.getCost(i,j) < minCost && (i!=j) && g.getCost(i,j)!=-1 ) {
-                    minCost = g.getCost(i,j);
+            double minCost = costs.cost(i, 0);
+            for(int l = 0; l < nbUnvisited; l++) {
+                int j = unvisited[l];
+                if( costs.cost(i,j) < minCost && (i!=j) && costs.cost(i,j)!=-1 ) {
+                    minCost = costs.cost(i,j);
                 }
             }
             evaluation = evaluation + minCost;
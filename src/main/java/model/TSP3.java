@@ -1,12 +1,9 @@
 package model;
 
-import java.util.Collection;
-import java.util.Iterator;
-
 public class TSP3 extends TSP2 {
     @Override
-    protected Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g) {
-        return new MinIter(unvisited, currentVertex, g);
+    protected CandidateIterator iterator(Graph g) {
+        return new MinIter(g.getNbVertices());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * TSP3 with a bound maintained incrementally along the search instead of being evaluated from scratch at each node.
+ * The bound is the same kind as the one of TSP2: the cheapest arc leaving the current vertex towards an unvisited
+ * vertex, plus for every unvisited vertex the cheapest arc towards vertex 0 or another unvisited vertex.
+ * Each vertex keeps its successors sorted by cost and a pointer to its cheapest valid successor, and is registered in
+ * the watch list of this successor. When a vertex is visited, only the vertices watching it move their pointer
+ * forward; the moves are logged so that they are undone when the vertex is unvisited. Pointers only move forward
+ * along a branch, so the cost of a branch is amortized over the depth of the search tree.
+ */
+public class TSP4 extends TSP3 {
+
+    /**
+     * The graph for which the structures of the bound have been allocated
+     */
+    private Graph allocatedGraph;
+
+    /**
+     * The successors of each vertex, sorted by ascending cost by the graph
+     */
+    private int[][] successors;
+
+    /**
+     * The index in <code>successors</code> of the cheapest valid successor of each vertex
+     */
+    private int[] pointer;
+
+    /**
+     * Whether each vertex has been visited
+     */
+    private boolean[] visited;
+
+    /**
+     * The first vertex watching each vertex (-1 if none)
+     */
+    private int[] head;
+
+    /**
+     * The next vertex in the same watch list (-1 if none)
+     */
+    private int[] next;
+
+    /**
+     * The sum of the cheapest valid arcs leaving the unvisited vertices
+     */
+    private double sumMinCosts;
+
+    /**
+     * The vertices whose pointer has been examined, in the order of the search
+     */
+    private int[] logVertex;
+
+    /**
+     * The pointers of the logged vertices before they moved
+     */
+    private int[] logPointer;
+
+    /**
+     * The number of logged vertices
+     */
+    private int logSize;
+
+    /**
+     * The size of the log before each visited vertex of the path
+     */
+    private int[] logStart;
+
+    /**
+     * The number of vertices visited since the reset
+     */
+    private int depth;
+
+    @Override
+    protected void resetState(Graph g) {
+        int nbVertices = g.getNbVertices();
+        if (allocatedGraph != g) allocate(g);
+        Arrays.fill(visited, false);
+        visited[0] = true;
+        Arrays.fill(head, -1);
+        pointer[0] = 0;
+        sumMinCosts = 0;
+        for (int i = 1; i < nbVertices; i++) {
+            // vertex 0 is the only visited vertex and it is a valid successor
+            pointer[i] = 0;
+            if (successors[i].length > 0) watch(i, successors[i][0]);
+            sumMinCosts += minCost(i, g);
+        }
+        logSize = 0;
+        depth = 0;
+    }
+
+    /**
+     * Get the sorted successors of every vertex of a graph and allocate the structures of the bound
+     * @param g the graph with all the costs
+     */
+    private void allocate(Graph g) {
+        int nbVertices = g.getNbVertices();
+        successors = new int[nbVertices][];
+        for (int i = 0; i < nbVertices; i++) successors[i] = costs.getSortedSuccessors(i);
+        pointer = new int[nbVertices];
+        visited = new boolean[nbVertices];
+        head = new int[nbVertices];
+        next = new int[nbVertices];
+        logVertex = new int[nbVertices * nbVertices];
+        logPointer = new int[nbVertices * nbVertices];
+        logStart = new int[nbVertices];
+        allocatedGraph = g;
+    }
+
+    @Override
+    protected void vertexVisited(int vertex) {
+        logStart[depth++] = logSize;
+        sumMinCosts -= minCost(vertex, g);
+        visited[vertex] = true;
+        int watcher = head[vertex];
+        head[vertex] = -1;
+        while (watcher != -1) {
+            int nextWatcher = next[watcher];
+            logVertex[logSize] = watcher;
+            logPointer[logSize++] = pointer[watcher];
+            // visited watchers are dropped until the vertex is unvisited
+            if (!visited[watcher]) {
+                sumMinCosts -= minCost(watcher, g);
+                int[] list = successors[watcher];
+                int p = pointer[watcher];
+                while (p < list.length && list[p] != 0 && visited[list[p]]) p++;
+                pointer[watcher] = p;
+                if (p < list.length) watch(watcher, list[p]);
+                sumMinCosts += minCost(watcher, g);
+            }
+            watcher = nextWatcher;
+        }
+    }
+
+    @Override
+    protected void vertexUnvisited(int vertex) {
+        int start = logStart[--depth];
+        // the moved watchers are at the front of their new list, as the moves are undone in reverse order
+        for (int k = logSize - 1; k >= start; k--) {
+            int watcher = logVertex[k];
+            if (!visited[watcher]) {
+                int[] list = successors[watcher];
+                if (pointer[watcher] < list.length) head[list[pointer[watcher]]] = next[watcher];
+                sumMinCosts -= minCost(watcher, g);
+                pointer[watcher] = logPointer[k];
+                sumMinCosts += minCost(watcher, g);
+            }
+            watch(watcher, vertex);
+        }
+        logSize = start;
+        visited[vertex] = false;
+        sumMinCosts += minCost(vertex, g);
+    }
+
+    /**
+     * Register a vertex in the watch list of its cheapest valid successor
+     * @param watcher the vertex
+     * @param successor its cheapest valid successor
+     */
+    private void watch(int watcher, int successor) {
+        next[watcher] = head[successor];
+        head[successor] = watcher;
+    }
+
+    /**
+     * @param vertex an unvisited vertex
+     * @param g the graph with all the costs
+     * @return the cost of the cheapest arc from <code>vertex</code> to vertex 0 or an unvisited vertex
+     * (0 if there is none, which keeps the bound valid)
+     */
+    private double minCost(int vertex, Graph g) {
+        int[] list = successors[vertex];
+        return pointer[vertex] < list.length ? costs.cost(vertex, list[pointer[vertex]]) : 0;
+    }
+
+    /**
+     * Incremental bound.
+     * Add the cheapest arc from the current vertex to an unvisited vertex to the maintained sum of the cheapest arcs
+     * leaving the unvisited vertices.
+     * @param currentVertex the current vertex
+     * @param unvisited the unvisited vertices
+     * @param nbUnvisited the number of unvisited vertices
+     * @param g the graph with all the costs
+     * @return a lower bound of the cost to complete the tour
+     */
+    @Override
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited, Graph g) {
+        // the successors skipped by the pointer of the current vertex have been visited before it
+        int[] list = successors[currentVertex];
+        for (int p = pointer[currentVertex]; p < list.length; p++) {
+            if (!visited[list[p]]) return sumMinCosts + costs.cost(currentVertex, list[p]);
+        }
+        return Double.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,199 @@
+package model;
+
+/**
+ * TSP4 with the assignment relaxation as bound.
+ * The remaining path from the current vertex through every unvisited vertex back to vertex 0 gives each of these
+ * vertices exactly one successor and one predecessor: its cost is at least the one of the cheapest assignment of
+ * successors to the current and unvisited vertices, among the unvisited vertices and vertex 0. Unlike the bound of
+ * TSP2, which lets several vertices share the same cheapest successor, the assignment takes into account the
+ * asymmetric costs in both directions. The precedence constraints forbid the arcs from the current vertex to a
+ * vertex with an unvisited predecessor, and from the current vertex to vertex 0 while vertices remain to visit.
+ * The assignment is solved by the Hungarian algorithm (shortest augmenting paths) in O(n^3) with arrays allocated once.
+ * As it is much more expensive than the incremental bound of TSP4, it is only computed when the latter doesn't prune
+ * the node, and stops as soon as the rows already assigned are enough to prune it.
+ */
+public class TSP5 extends TSP4 {
+
+    /**
+     * The cost given to forbidden assignments
+     */
+    private static final double FORBIDDEN = 1e12;
+
+    /**
+     * The number of unvisited vertices below which the incremental bound of TSP4 is used alone
+     */
+    private static final int MIN_UNVISITED = 4;
+
+    /**
+     * The number of vertices of the graph for which the arrays have been allocated
+     */
+    private int capacity = -1;
+
+    /**
+     * The vertex of each row (1-indexed): the current vertex then the unvisited vertices
+     */
+    private int[] rowVertex;
+
+    /**
+     * The vertex of each column (1-indexed): vertex 0 then the unvisited vertices
+     */
+    private int[] columnVertex;
+
+    /**
+     * Whether each vertex is unvisited, for the precedence constraints
+     */
+    private boolean[] isUnvisited;
+
+    /**
+     * The cost matrix of the assignment of the current node, row by row (1-indexed)
+     */
+    private double[] matrix;
+
+    /**
+     * The length of a row of <code>matrix</code>
+     */
+    private int stride;
+
+    /**
+     * Dual potentials of the rows and of the columns
+     */
+    private double[] rowPotential, columnPotential;
+
+    /**
+     * Minimal reduced cost to reach each column during an augmentation
+     */
+    private double[] minReducedCost;
+
+    /**
+     * The row assigned to each column (0 if none), and the previous column on the augmenting path
+     */
+    private int[] assignedRow, previousColumn;
+
+    /**
+     * Whether each column is in the current augmenting tree
+     */
+    private boolean[] used;
+
+    /**
+     * Allocate the arrays of the Hungarian algorithm for a graph
+     * @param nbVertices the number of vertices of the graph
+     */
+    private void allocate(int nbVertices) {
+        capacity = nbVertices;
+        rowVertex = new int[nbVertices + 1];
+        columnVertex = new int[nbVertices + 1];
+        isUnvisited = new boolean[nbVertices];
+        stride = nbVertices + 1;
+        matrix = new double[stride * stride];
+        rowPotential = new double[nbVertices + 1];
+        columnPotential = new double[nbVertices + 1];
+        minReducedCost = new double[nbVertices + 1];
+        assignedRow = new int[nbVertices + 1];
+        previousColumn = new int[nbVertices + 1];
+        used = new boolean[nbVertices + 1];
+    }
+
+    /**
+     * Cost of assigning the vertex of a column as successor of the vertex of a row
+     * @param row the row
+     * @param column the column
+     * @param size the number of rows
+     * @param g the graph with all the costs
+     * @return the cost of the arc, or <code>FORBIDDEN</code>
+     */
+    private double cost(int row, int column, int size, Graph g) {
+        int from = rowVertex[row];
+        int to = columnVertex[column];
+        if (!costs.arc(from, to)) return FORBIDDEN;
+        if (row == 1) {
+            // the current vertex goes back to the depot only if every vertex has been visited
+            if (to == 0 && size > 1) return FORBIDDEN;
+            for (int predecessor : g.getPrecedence().getPredecessors(to)) {
+                if (isUnvisited[predecessor]) return FORBIDDEN;
+            }
+        }
+        return costs.cost(from, to);
+    }
+
+    /**
+     * Assignment bound.
+     * @param currentVertex the current vertex
+     * @param unvisited the unvisited vertices
+     * @param nbUnvisited the number of unvisited vertices
+     * @param g the graph with all the costs
+     * @return the cost of the cheapest assignment, a lower bound of the cost to complete the tour
+     */
+    @Override
+    protected double bound(int currentVertex, int[] unvisited, int nbUnvisited, Graph g) {
+        double incrementalBound = super.bound(currentVertex, unvisited, nbUnvisited, g);
+        double threshold = pruningThreshold();
+        if (nbUnvisited < MIN_UNVISITED || incrementalBound >= threshold) return incrementalBound;
+        if (capacity != g.getNbVertices()) allocate(g.getNbVertices());
+        int size = nbUnvisited + 1;
+        rowVertex[1] = currentVertex;
+        columnVertex[1] = 0;
+        for (int k = 0; k < nbUnvisited; k++) {
+            rowVertex[k + 2] = unvisited[k];
+            columnVertex[k + 2] = unvisited[k];
+            isUnvisited[unvisited[k]] = true;
+        }
+        for (int i = 1; i <= size; i++) {
+            for (int j = 1; j <= size; j++) matrix[i * stride + j] = cost(i, j, size, g);
+        }
+        for (int j = 0; j <= size; j++) {
+            columnPotential[j] = 0;
+            assignedRow[j] = 0;
+        }
+        for (int i = 0; i <= size; i++) rowPotential[i] = 0;
+
+        for (int i = 1; i <= size; i++) {
+            // find a shortest augmenting path from row i to a free column
+            assignedRow[0] = i;
+            int column = 0;
+            for (int j = 0; j <= size; j++) {
+                minReducedCost[j] = Double.MAX_VALUE;
+                used[j] = false;
+            }
+            do {
+                used[column] = true;
+                int row = assignedRow[column];
+                double delta = Double.MAX_VALUE;
+                int nextColumn = 0;
+                for (int j = 1; j <= size; j++) {
+                    if (used[j]) continue;
+                    double reducedCost = matrix[row * stride + j] - rowPotential[row] - columnPotential[j];
+                    if (reducedCost < minReducedCost[j]) {
+                        minReducedCost[j] = reducedCost;
+                        previousColumn[j] = column;
+                    }
+                    if (minReducedCost[j] < delta) {
+                        delta = minReducedCost[j];
+                        nextColumn = j;
+                    }
+                }
+                for (int j = 0; j <= size; j++) {
+                    if (used[j]) {
+                        rowPotential[assignedRow[j]] += delta;
+                        columnPotential[j] -= delta;
+                    } else {
+                        minReducedCost[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (assignedRow[column] != 0);
+            // flip the augmenting path
+            do {
+                int previous = previousColumn[column];
+                assignedRow[column] = assignedRow[previous];
+                column = previous;
+            } while (column != 0);
+            // the cheapest assignment of the first rows is a lower bound of the complete one
+            if (-columnPotential[0] >= threshold) break;
+        }
+
+        for (int k = 0; k < nbUnvisited; k++) isUnvisited[unvisited[k]] = false;
+        double assignmentCost = -columnPotential[0];
+        return assignmentCost >= FORBIDDEN ? Double.MAX_VALUE : Math.max(assignmentCost, incrementalBound);
+    }
+
+}
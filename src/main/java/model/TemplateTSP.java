@@ -1,19 +1,52 @@
 package model;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Iterator;
 
 /**
  * The computing of TSP
+ * The search state is kept in primitive arrays allocated once per call to <code>searchSolution</code>: a bitset of
+ * visited vertices, an array of unvisited vertices with O(1) removal, the current path as a stack of vertices and one
+ * reusable candidate iterator per depth. Exploring a node of the search tree therefore never allocates.
+ * Sub-problems reached again through another order of the same visited vertices are pruned by a transposition table.
+ * Before the exact search, a limited discrepancy search may explore the tours which follow the order of the iterator
+ * except in at most k places, for k = 0, 1, 2... up to a limit: a wrong early choice of the iterator is then corrected
+ * at once instead of after the whole subtree below it, so that a near-optimal tour is found in a few milliseconds.
+ * The search reports how far its best tour may be from the optimal tour. The bound of the root is a first lower bound
+ * of the optimal cost. The children of the nodes of the first levels are bounded before being explored, so that the
+ * lowest bound of the subtrees not explored yet is known: no tour cheaper than it has been missed. The search stops
+ * by itself once the best tour is within a target gap of this lower bound.
+ * The search is an anytime algorithm: it stops when the time limit is reached, and the best tour found so far is the
+ * one which has been published to the tour.
  */
 public abstract class TemplateTSP implements TSP {
 
     /**
-     * A table containing the order of vertex of the best solution
+     * The number of unvisited vertices below which the sub-problems aren't stored in the transposition table, as they
+     * are cheaper to explore again than to look up
      */
-    private Integer[] bestSol;
+    private static final int MIN_CACHED_UNVISITED = 3;
+
+    /**
+     * The number of discrepancies of the last pass of the limited discrepancy search, when it is enabled: the pass
+     * with 3 discrepancies already takes more than half a second on 29 vertices
+     */
+    public static final int DEFAULT_MAX_DISCREPANCIES = 2;
+
+    /**
+     * The number of vertices of the paths whose children are bounded before being explored, to know the lowest bound
+     * of the open subtrees
+     */
+    private static final int FRONTIER_DEPTH = 2;
+
+    /**
+     * The best solution found so far, shared with the other workers of a parallel search
+     */
+    private Incumbent incumbent;
+
+    /**
+     * The channel through which the improving solutions are published to the tour
+     */
+    private SolutionPublisher publisher;
 
     /**
      * The graph studied
@@ -21,96 +54,695 @@ public abstract class TemplateTSP implements TSP {
     protected Graph g;
 
     /**
-     * The length of the solution
+     * The costs of the graph studied, read by the inner loops of the search
      */
-    private double bestSolCost;
+    protected CostMatrix costs;
 
     /**
      * The start time of computing
      */
     private long startTime;
 
+    /**
+     * The time (in milliseconds since epoch) at which the search must stop
+     */
+    private long deadline;
+
+    /**
+     * The number of nodes of the search tree explored, the clock is only read every 1024 nodes
+     */
+    private long nbExploredNodes;
+
+    /**
+     * Whether the time limit has been reached
+     */
+    private boolean timeLimitReached;
+
+    /**
+     * Whether the best tour has been proven to be within the target gap of the optimal tour
+     */
+    private boolean targetGapReached;
+
+    /**
+     * Whether the search must stop, because of the time limit or of the target gap
+     */
+    private boolean stopped;
+
+    /**
+     * The relative gap between the best cost and the lower bound at which the search stops (0 to prove optimality)
+     */
+    private double targetGap;
+
+    /**
+     * The lower bound of the cost of the tours given by the root of the search tree
+     */
+    private volatile double rootLowerBound;
+
+    /**
+     * The lowest bound of the subtrees not explored yet, infinite once the whole tree has been explored
+     */
+    private volatile double openBound;
+
+    /**
+     * Whether the children of the first levels are bounded before being explored, only when the search covers the
+     * whole tree
+     */
+    private boolean frontierTracked;
+
+    /**
+     * For each depth of the first levels: the children of the node being branched, their bounds, their number, and
+     * the index of the child being explored
+     */
+    private int[][] frontierChildren;
+    private double[][] frontierBounds;
+    private int[] nbFrontierChildren;
+    private int[] frontierIndex;
+
+    /**
+     * The depth of the deepest node of the first levels being branched, 0 if none
+     */
+    private int frontierLevel;
+
+    /**
+     * The cost of the path of the node being bounded
+     */
+    private double currentPathCost;
+
+    /**
+     * The number of vertices of the graph studied
+     */
+    private int nbVertices;
+
+    /**
+     * The unvisited vertices, only the <code>nbUnvisited</code> first cells are meaningful
+     */
+    private int[] unvisited;
+
+    /**
+     * The index of each vertex in <code>unvisited</code>
+     */
+    private int[] position;
+
+    /**
+     * The number of unvisited vertices
+     */
+    private int nbUnvisited;
+
+    /**
+     * The bitset of visited vertices
+     */
+    private long[] visited;
+
+    /**
+     * The sequence of vertices that have been already visited, only the <code>nbVertices - nbUnvisited</code>
+     * first cells are meaningful
+     */
+    private int[] path;
+
+    /**
+     * One candidate iterator per depth of the search tree
+     */
+    private CandidateIterator[] iterators;
+
+    /**
+     * The memory given to the transposition table, in bytes (0 if the table isn't used)
+     */
+    private long transpositionTableSize = TranspositionTable.DEFAULT_SIZE;
+
+    /**
+     * The sub-problems already solved by the search, null if the table isn't used
+     */
+    private TranspositionTable transpositionTable;
+
+    /**
+     * The tour from which the next search starts, null to build one by cheapest insertion
+     */
+    private int[] initialSolution;
+
+    /**
+     * The maximal number of discrepancies of the limited discrepancy search run before the exact search, -1 to skip it
+     */
+    private int maxDiscrepancies = -1;
+
+    /**
+     * Whether a child has been skipped by the current pass of the limited discrepancy search because of its limit
+     */
+    private boolean discrepancyCut;
+
+    /**
+     * The cost of the best tour once the limited discrepancy search is over, and the time spent by the search until
+     * then in milliseconds, -1 if the last search hasn't run it
+     */
+    private double discrepancyCost = -1;
+    private long discrepancyTime = -1;
+
     public void searchSolution(int timeLimit, Graph g, Tour tour){
         if (timeLimit <= 0) return;
-        startTime = System.currentTimeMillis();
-        /*
-          The time limit before which we want a solution
-         */
-        this.g = g;
-        bestSol = new Integer[g.getNbVertices()];
-        Collection<Integer> unvisited = new ArrayList<>(g.getNbVertices() - 1);
-        for (int i=1; i<g.getNbVertices(); i++) unvisited.add(i);
-        Collection<Integer> visited = new ArrayList<>(g.getNbVertices());
-        visited.add(0); // The first visited vertex is 0 which is the depot
-        bestSolCost = Double.MAX_VALUE;
-        branchAndBound(0, unvisited, visited, 0, tour);
+        long startTime = System.currentTimeMillis();
+        SolutionPublisher publisher = new SolutionPublisher(tour, g);
+        prepare(g, new Incumbent(g.getNbVertices()), publisher, startTime, startTime + timeLimit);
+        setRootLowerBound(evaluate(path, 1, 0));
+        frontierTracked = true;
+        seed(tour);
+        branchAndBound(0, 0, tour);
+        // the whole tree has been explored, the best tour is optimal
+        if (!stopped && !tour.isTourComputed()) openBound = Double.POSITIVE_INFINITY;
+        frontierTracked = false;
+        publisher.close();
         tour.setTourComputed(true);
     }
 
     public double getSolutionCost(){
-        if (g != null)
-            return bestSolCost;
+        if (incumbent != null)
+            return incumbent.getSolutionCost();
         return -1;
     }
 
+    /**
+     * @return the time spent by the last search before it found its best solution, in milliseconds, or -1 if no
+     * search has found a tour
+     */
+    public long getTimeToBestSolution() {
+        if (incumbent == null) return -1;
+        synchronized (incumbent) {
+            if (incumbent.getSolutionCost() == Double.MAX_VALUE) return -1;
+            return incumbent.getSolutionTime() - startTime;
+        }
+    }
+
+    /**
+     * Getter for nbExploredNodes attribute.
+     * @return the number of nodes of the search tree explored by the last search
+     */
+    public long getNbExploredNodes() {
+        return nbExploredNodes;
+    }
+
+    /**
+     * Use a transposition table, so that a sub-problem reached again through another order of the same visited
+     * vertices is pruned with the result of its first exploration
+     * @param size the memory given to the table, in bytes (0 to disable the table)
+     */
+    public void setTranspositionTableSize(long size) {
+        this.transpositionTableSize = size;
+    }
+
+    /**
+     * Getter for transpositionTable attribute.
+     * @return the transposition table of the last search with its statistics, null if the table isn't used
+     */
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    @Override
+    public void setInitialSolution(int[] order) {
+        this.initialSolution = order;
+    }
+
+    /**
+     * Run a limited discrepancy search before the exact search: the pass k explores the tours which differ from the
+     * order of the iterator in at most k places, for k = 0 up to the limit
+     * @param maxDiscrepancies the number of discrepancies of the last pass (-1 to skip the limited discrepancy search)
+     */
+    public void setMaxDiscrepancies(int maxDiscrepancies) {
+        this.maxDiscrepancies = maxDiscrepancies;
+    }
+
+    /**
+     * Getter for discrepancyCost attribute.
+     * @return the cost of the best tour once the limited discrepancy search of the last search was over, -1 if it
+     * hasn't run
+     */
+    public double getDiscrepancyCost() {
+        return discrepancyCost;
+    }
+
+    /**
+     * Getter for discrepancyTime attribute.
+     * @return the time spent by the last search until its limited discrepancy search was over, in milliseconds, -1
+     * if it hasn't run
+     */
+    public long getDiscrepancyTime() {
+        return discrepancyTime;
+    }
+
+    @Override
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
+
+    /**
+     * Getter for targetGapReached attribute.
+     * @return whether the last search has been stopped because its best tour was within the target gap
+     */
+    public boolean isTargetGapReached() {
+        return targetGapReached;
+    }
+
+    /**
+     * Give the lower bound of the root when it is known from outside the search, such as for the workers of a
+     * parallel search exploring subtrees
+     * @param bound a lower bound of the cost of the tours
+     */
+    void setRootLowerBound(double bound) {
+        rootLowerBound = bound;
+        openBound = bound;
+    }
+
+    /**
+     * The best lower bound of the optimal cost known so far, which may be read while the search runs
+     * @return the lowest bound of the root and of the subtrees not explored yet, at most the best known cost
+     */
+    @Override
+    public double getLowerBound() {
+        if (incumbent == null) return -1;
+        return Math.max(rootLowerBound, Math.min(incumbent.getCost(), openBound));
+    }
+
+    /**
+     * Getter for timeLimitReached attribute.
+     * @return whether the last search has been stopped by its time limit
+     */
+    public boolean isTimeLimitReached() {
+        return timeLimitReached;
+    }
+
+    /**
+     * Allocate the search state for a graph. The only visited vertex is 0 which is the depot.
+     * @param g the graph with all the costs
+     * @param incumbent the best solution found so far, it may be shared with other workers
+     * @param publisher the channel through which the improving solutions are published, it may be shared too
+     * @param startTime the start time of computing
+     * @param deadline the time at which the search must stop
+     */
+    void prepare(Graph g, Incumbent incumbent, SolutionPublisher publisher, long startTime, long deadline) {
+        this.g = g;
+        this.costs = CostMatrix.of(g);
+        this.incumbent = incumbent;
+        this.publisher = publisher;
+        this.startTime = startTime;
+        this.deadline = deadline;
+        nbExploredNodes = 0;
+        timeLimitReached = false;
+        targetGapReached = false;
+        stopped = false;
+        rootLowerBound = 0;
+        openBound = 0;
+        frontierTracked = false;
+        frontierLevel = 0;
+        nbVertices = g.getNbVertices();
+        frontierChildren = new int[FRONTIER_DEPTH + 1][nbVertices];
+        frontierBounds = new double[FRONTIER_DEPTH + 1][nbVertices];
+        nbFrontierChildren = new int[FRONTIER_DEPTH + 1];
+        frontierIndex = new int[FRONTIER_DEPTH + 1];
+        unvisited = new int[nbVertices];
+        position = new int[nbVertices];
+        visited = new long[(nbVertices + 63) >>> 6];
+        path = new int[nbVertices];
+        iterators = new CandidateIterator[nbVertices];
+        for (int i = 0; i < nbVertices; i++) iterators[i] = iterator(g);
+        transpositionTable = transpositionTableSize > 0 ? new TranspositionTable(nbVertices, transpositionTableSize) : null;
+        restart(path, 1);
+    }
+
+    /**
+     * Reset the search state so that the visited vertices are the first vertices of <code>prefix</code>
+     * @param prefix a path starting from vertex 0
+     * @param length the number of vertices of the path
+     */
+    private void restart(int[] prefix, int length) {
+        nbUnvisited = 0;
+        for (int i=1; i<nbVertices; i++) {
+            position[i] = nbUnvisited;
+            unvisited[nbUnvisited++] = i;
+        }
+        Arrays.fill(visited, 0);
+        path[0] = 0;
+        visited[0] = 1L; // The first visited vertex is 0 which is the depot
+        resetState(g);
+        for (int depth = 1; depth < length; depth++) visit(prefix[depth], depth);
+    }
+
+    /**
+     * Build a first tour by cheapest insertion, or start from the initial solution if one is given, improve it by
+     * local search, and publish it before the branch and bound starts so that the tour is displayed at once and its
+     * cost prunes the search from the root. The passes of the limited discrepancy search follow, if it is enabled.
+     * @param tour the last computed tour
+     */
+    void seed(Tour tour) {
+        discrepancyCost = -1;
+        discrepancyTime = -1;
+        if (incumbent.seed(g, initialSolution, publisher, deadline) != null) checkTargetGap();
+        if (maxDiscrepancies < 0) return;
+        for (int k = 0; k <= maxDiscrepancies && !stopped && !tour.isTourComputed(); k++) {
+            discrepancyCut = false;
+            discrepancySearch(0, 0, k, tour);
+            // the pass has explored the whole tree, the next ones wouldn't find anything else
+            if (!discrepancyCut) break;
+        }
+        discrepancyCost = incumbent.getSolutionCost();
+        discrepancyTime = System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * List the children of a node of the search tree, unless it can be pruned
+     * @param prefix the path from vertex 0 to the node
+     * @param length the number of vertices of the path
+     * @param cost the cost of the path
+     * @param children the array to fill with the next vertices, in the order of the iterator
+     * @return the number of children
+     */
+    int expand(int[] prefix, int length, double cost, int[] children) {
+        restart(prefix, length);
+        int currentVertex = prefix[length - 1];
+        if (nbUnvisited == 0 || boundPath(cost) + bound(currentVertex, unvisited, nbUnvisited, g) >= incumbent.getCost()) return 0;
+        CandidateIterator it = iterators[length];
+        it.reset(currentVertex, unvisited, nbUnvisited, visited, costs);
+        int nbChildren = 0;
+        while (it.hasNext()) children[nbChildren++] = it.nextInt();
+        return nbChildren;
+    }
+
+    /**
+     * Bound a node of the search tree, without exploring it
+     * @param prefix the path from vertex 0 to the node
+     * @param length the number of vertices of the path
+     * @param cost the cost of the path
+     * @return a lower bound of the cost of the tours starting with the path, the cost of the tour if the path visits
+     * every vertex, infinite if it can't be completed
+     */
+    double evaluate(int[] prefix, int length, double cost) {
+        restart(prefix, length);
+        isOutOfTime();
+        int currentVertex = prefix[length - 1];
+        if (nbUnvisited == 0) return costs.arc(currentVertex, 0) ? cost + costs.cost(currentVertex, 0) : Double.POSITIVE_INFINITY;
+        return boundPath(cost) + bound(currentVertex, unvisited, nbUnvisited, g);
+    }
+
+    /**
+     * Explore the subtree of the search tree rooted at a node
+     * @param prefix the path from vertex 0 to the node
+     * @param length the number of vertices of the path
+     * @param cost the cost of the path
+     * @param tour the last computed tour
+     */
+    void search(int[] prefix, int length, double cost, Tour tour) {
+        restart(prefix, length);
+        branchAndBound(prefix[length - 1], cost, tour);
+    }
+
+    /**
+     * Check if a vertex belongs to a bitset
+     * @param bitset the bitset of vertices
+     * @param vertex the vertex to check
+     * @return whether <code>vertex</code> is in <code>bitset</code>
+     */
+    static boolean isVisited(long[] bitset, int vertex) {
+        return (bitset[vertex >>> 6] & (1L << vertex)) != 0;
+    }
+
     /**
      * Method that must be defined in TemplateTSP subclasses
      * @param currentVertex the vertex from which the evaluation begin
-     * @param unvisited the unvisited vertices
+     * @param unvisited the unvisited vertices (only the <code>nbUnvisited</code> first cells are meaningful)
+     * @param nbUnvisited the number of unvisited vertices
+     * @param g the graph with all the costs
      * @return a lower bound of the cost of paths in <code>g</code> starting from <code>currentVertex</code>, visiting
      * every vertex in <code>unvisited</code> exactly once, and returning to vertex <code>0</code>.
      */
-    protected abstract double bound(Integer currentVertex, Collection<Integer> unvisited, Graph g);
+    protected abstract double bound(int currentVertex, int[] unvisited, int nbUnvisited, Graph g);
 
     /**
      * Method that must be defined in TemplateTSP subclasses
-     * @param currentVertex the current vertex in TSP
-     * @param unvisited the unvisited vertices
      * @param g the graph with all the costs
-     * @return an iterator for visiting all vertices in <code>unvisited</code> which are successors of <code>currentVertex</code>
+     * @return a new iterator able to visit the successors of any vertex of <code>g</code>, it is reused at each node
+     * of a given depth of the search tree
      */
-    protected abstract Iterator<Integer> iterator(Integer currentVertex, Collection<Integer> unvisited, Graph g);
+    protected abstract CandidateIterator iterator(Graph g);
+
+    /**
+     * Record the cost of the path of the node about to be bounded
+     * @param cost the cost of the path
+     * @return the cost of the path
+     */
+    private double boundPath(double cost) {
+        currentPathCost = cost;
+        return cost;
+    }
+
+    /**
+     * Give the bounds the value from which they prune the current node, so that an expensive bound can be skipped
+     * once a cheaper one reaches it.
+     * @return the best known cost minus the cost of the path of the node being bounded
+     */
+    protected double pruningThreshold() {
+        return incumbent.getCost() - currentPathCost;
+    }
+
+    /**
+     * Hook called when the search state is reset, the only visited vertex being 0.
+     * Subclasses maintaining data along the search (such as an incremental bound) initialize it here.
+     * @param g the graph with all the costs
+     */
+    protected void resetState(Graph g) {}
+
+    /**
+     * Hook called when a vertex is added at the end of the path
+     * @param vertex the visited vertex
+     */
+    protected void vertexVisited(int vertex) {}
+
+    /**
+     * Hook called when the last vertex of the path is given back to the unvisited vertices
+     * @param vertex the unvisited vertex
+     */
+    protected void vertexUnvisited(int vertex) {}
 
     /**
      * Template method of a branch and bound algorithm for solving the TSP in <code>g</code>.
+     * The visited vertices are the <code>nbVertices - nbUnvisited</code> first cells of <code>path</code>.
+     * @param currentVertex the last visited vertex
+     * @param currentCost the cost of the path corresponding to <code>path</code>
+     * @param tour the last computed tour
+     */
+    private void branchAndBound(int currentVertex, double currentCost, Tour tour){
+        if (tour.isTourComputed() || isOutOfTime()) return;
+        if (nbUnvisited == 0){
+            if (costs.arc(currentVertex,0)){
+                publish(path, currentCost+costs.cost(currentVertex,0));
+            }
+        } else if (transpositionTable != null && nbUnvisited >= MIN_CACHED_UNVISITED) {
+            cachedBranchAndBound(currentVertex, currentCost, tour);
+        } else if (boundPath(currentCost) + bound(currentVertex, unvisited, nbUnvisited, g) < incumbent.getCost()){
+            branch(currentVertex, currentCost, tour);
+        }
+    }
+
+    /**
+     * Explore the children of the current node
+     * @param currentVertex the last visited vertex
+     * @param currentCost the cost of the path corresponding to <code>path</code>
+     * @param tour the last computed tour
+     */
+    private void branch(int currentVertex, double currentCost, Tour tour) {
+        int depth = nbVertices - nbUnvisited;
+        if (frontierTracked && depth <= FRONTIER_DEPTH) {
+            frontierBranch(currentVertex, currentCost, tour);
+            return;
+        }
+        CandidateIterator it = iterators[depth];
+        it.reset(currentVertex, unvisited, nbUnvisited, visited, costs);
+        while (it.hasNext() && !stopped){
+            int nextVertex = it.nextInt();
+            visit(nextVertex, depth);
+            branchAndBound(nextVertex, currentCost+costs.cost(currentVertex, nextVertex), tour);
+            unvisit(nextVertex);
+        }
+    }
+
+    /**
+     * Explore the children of a node of the first levels, after bounding all of them, so that the lowest bound of the
+     * open subtrees can be updated each time the subtree of a child has been explored
+     * @param currentVertex the last visited vertex
+     * @param currentCost the cost of the path corresponding to <code>path</code>
+     * @param tour the last computed tour
+     */
+    private void frontierBranch(int currentVertex, double currentCost, Tour tour) {
+        int depth = nbVertices - nbUnvisited;
+        int[] children = frontierChildren[depth];
+        double[] bounds = frontierBounds[depth];
+        CandidateIterator it = iterators[depth];
+        it.reset(currentVertex, unvisited, nbUnvisited, visited, costs);
+        int nbChildren = 0;
+        while (it.hasNext()) {
+            int nextVertex = it.nextInt();
+            double cost = currentCost + costs.cost(currentVertex, nextVertex);
+            visit(nextVertex, depth);
+            if (nbUnvisited == 0) bounds[nbChildren] = costs.arc(nextVertex, 0) ? cost + costs.cost(nextVertex, 0) : Double.POSITIVE_INFINITY;
+            else bounds[nbChildren] = boundPath(cost) + bound(nextVertex, unvisited, nbUnvisited, g);
+            unvisit(nextVertex);
+            children[nbChildren++] = nextVertex;
+        }
+        nbFrontierChildren[depth] = nbChildren;
+        for (int k = 0; k < nbChildren && !stopped; k++) {
+            frontierLevel = depth;
+            frontierIndex[depth] = k;
+            int nextVertex = children[k];
+            visit(nextVertex, depth);
+            branchAndBound(nextVertex, currentCost + costs.cost(currentVertex, nextVertex), tour);
+            unvisit(nextVertex);
+            if (stopped || tour.isTourComputed()) break;
+            // the subtree of the child has been explored
+            frontierLevel = depth;
+            frontierIndex[depth] = k + 1;
+            updateOpenBound();
+        }
+        frontierLevel = depth - 1;
+    }
+
+    /**
+     * Compute the lowest bound of the subtrees not explored yet: at each level, the children after the one being
+     * explored are open, and so is the whole subtree of the child being explored at the deepest level
+     */
+    private void updateOpenBound() {
+        double bound = Double.POSITIVE_INFINITY;
+        for (int depth = frontierLevel; depth >= 1; depth--) {
+            int first = depth == frontierLevel ? frontierIndex[depth] : frontierIndex[depth] + 1;
+            for (int k = first; k < nbFrontierChildren[depth]; k++) bound = Math.min(bound, frontierBounds[depth][k]);
+        }
+        openBound = bound;
+        checkTargetGap();
+    }
+
+    /**
+     * Branch and bound of the current node which follows the order of the iterator: its first child is free, and each
+     * other child costs a discrepancy. The subtrees are only partly explored, so nothing is stored in the
+     * transposition table.
      * @param currentVertex the last visited vertex
-     * @param unvisited the set of vertex that have not yet been visited
-     * @param visited the sequence of vertices that have been already visited (including currentVertex)
-     * @param currentCost the cost of the path corresponding to <code>visited</code>
+     * @param currentCost the cost of the path corresponding to <code>path</code>
+     * @param discrepancies the number of discrepancies left to the path
      * @param tour the last computed tour
      */
-    private void branchAndBound(int currentVertex, Collection<Integer> unvisited,
-                                Collection<Integer> visited, double currentCost, Tour tour){
-        if (tour.isTourComputed()) return;
-        if (unvisited.size() == 0){
-            if (g.isArc(currentVertex,0)){
-                if (currentCost+g.getCost(currentVertex,0) < bestSolCost){
-                    visited.toArray(bestSol);
-                    bestSolCost = currentCost+g.getCost(currentVertex,0);
-                    CompleteGraph completeGraph = (CompleteGraph) g;
-                    tour.updateTourInformation(completeGraph.listNodesGraph, startTime, this);
-                    tour.notifyObservers();
-                }
+    private void discrepancySearch(int currentVertex, double currentCost, int discrepancies, Tour tour) {
+        if (tour.isTourComputed() || isOutOfTime()) return;
+        if (nbUnvisited == 0) {
+            if (costs.arc(currentVertex, 0)) publish(path, currentCost + costs.cost(currentVertex, 0));
+            return;
+        }
+        if (boundPath(currentCost) + bound(currentVertex, unvisited, nbUnvisited, g) >= incumbent.getCost()) return;
+        int depth = nbVertices - nbUnvisited;
+        CandidateIterator it = iterators[depth];
+        it.reset(currentVertex, unvisited, nbUnvisited, visited, costs);
+        boolean first = true;
+        while (it.hasNext() && !stopped && !tour.isTourComputed()) {
+            if (!first && discrepancies == 0) {
+                discrepancyCut = true;
+                return;
             }
-        } else if (currentCost+bound(currentVertex,unvisited, g) < bestSolCost){
-            Iterator<Integer> it = iterator(currentVertex, unvisited, g);
-            while (it.hasNext()){
-                Integer nextVertex = it.next();
-                visited.add(nextVertex);
-                unvisited.remove(nextVertex);
-                branchAndBound(nextVertex, unvisited, visited,
-                        currentCost+g.getCost(currentVertex, nextVertex), tour);
-                visited.remove(nextVertex);
-                unvisited.add(nextVertex);
+            int nextVertex = it.nextInt();
+            visit(nextVertex, depth);
+            discrepancySearch(nextVertex, currentCost + costs.cost(currentVertex, nextVertex), first ? discrepancies : discrepancies - 1, tour);
+            unvisit(nextVertex);
+            first = false;
+        }
+    }
+
+    /**
+     * Branch and bound of a node whose sub-problem is looked for in the transposition table before being bounded, and
+     * stored in it once its subtree has been explored
+     * @param currentVertex the last visited vertex
+     * @param currentCost the cost of the path corresponding to <code>path</code>
+     * @param tour the last computed tour
+     */
+    private void cachedBranchAndBound(int currentVertex, double currentCost, Tour tour) {
+        double lowerBound = 0;
+        int entry = transpositionTable.find(currentVertex, visited);
+        if (entry >= 0) {
+            lowerBound = transpositionTable.getLowerBound(entry);
+            if (currentCost + lowerBound >= incumbent.getCost()) {
+                transpositionTable.countCutoff();
+                return;
             }
         }
+        boundPath(currentCost);
+        lowerBound = Math.max(lowerBound, bound(currentVertex, unvisited, nbUnvisited, g));
+        if (currentCost + lowerBound < incumbent.getCost()) {
+            branch(currentVertex, currentCost, tour);
+            if (stopped || tour.isTourComputed()) return;
+            // every completion cheaper than the best known cost has been found in the subtree
+            lowerBound = Math.max(lowerBound, incumbent.getCost() - currentCost);
+        }
+        transpositionTable.store(currentVertex, visited, lowerBound);
+    }
+
+    /**
+     * Record a solution and post it to the publisher if it is better than the best solution found so far
+     * @param order the order of the vertices of the solution
+     * @param cost the cost of the solution
+     */
+    private void publish(int[] order, double cost) {
+        if (incumbent.offer(order, cost, publisher)) checkTargetGap();
+    }
+
+    /**
+     * Count an explored node and check the time limit every 1024 nodes
+     * @return whether the search must stop
+     */
+    private boolean isOutOfTime() {
+        if ((++nbExploredNodes & 1023) == 0 && System.currentTimeMillis() >= deadline) {
+            timeLimitReached = true;
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * Stop the search if the best tour is within the target gap of the lower bound
+     */
+    private void checkTargetGap() {
+        double cost = incumbent.getCost();
+        if (targetGap > 0 && cost - getLowerBound() <= targetGap * cost) {
+            targetGapReached = true;
+            stopped = true;
+        }
+    }
+
+    /**
+     * Move a vertex from the unvisited vertices to the end of the path
+     * @param vertex the vertex to visit
+     * @param depth the index of <code>vertex</code> in the path
+     */
+    private void visit(int vertex, int depth) {
+        int last = unvisited[--nbUnvisited];
+        int index = position[vertex];
+        unvisited[index] = last;
+        position[last] = index;
+        unvisited[nbUnvisited] = vertex;
+        position[vertex] = nbUnvisited;
+        visited[vertex >>> 6] |= 1L << vertex;
+        path[depth] = vertex;
+        vertexVisited(vertex);
+    }
+
+    /**
+     * Give back the last visited vertex to the unvisited vertices
+     * @param vertex the last visited vertex
+     */
+    private void unvisit(int vertex) {
+        // vertex is still stored just after the unvisited vertices
+        nbUnvisited++;
+        visited[vertex >>> 6] &= ~(1L << vertex);
+        vertexUnvisited(vertex);
     }
 
     /**
-     * Getter for bestSol attribute.
+     * Getter for the best solution.
      * @return best solution
      */
-    public Integer[] getBestSol() {
-        return bestSol;
+    public int[] getBestSol() {
+        if (incumbent != null)
+            return incumbent.getSolution();
+        return null;
     }
 }
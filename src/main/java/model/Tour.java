@@ -6,6 +6,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.*;
+import java.util.function.BiFunction;
 
 /**
  * A tour is composed of a list of shortest paths. This list corresponds to all path which need to accomplish every request that must
@@ -18,6 +19,16 @@ public class Tour extends Observable {
 
     /* ATTRIBUTES */
 
+    /**
+     * Default maximal duration of the computation of a tour, in milliseconds
+     */
+    public static final int DEFAULT_TIME_LIMIT = 60000;
+
+    /**
+     * Default maximal duration of the re-optimization of a tour after it has been edited, in milliseconds
+     */
+    public static final int DEFAULT_REOPTIMIZATION_TIME = 2000;
+
     // km/h
     private final double speed = 15;
 
@@ -63,13 +74,42 @@ public class Tour extends Observable {
 
     /**
      * A list of shortest path which is used to print the best path. Sorted ascending for optimization.
+     * Volatile as it is read by the GUI and the online dispatcher while the tour changes on another thread: a change
+     * builds a new list of copied paths and assigns it once complete, a list being never modified once assigned.
      */
-    private final ArrayList<ShortestPath> listShortestPaths;
+    private volatile ArrayList<ShortestPath> listShortestPaths;
 
     /**
      * Boolean indicating if the tour has already been computed.
+     * Volatile as it is set by the GUI to stop the computation running on another thread.
+     */
+    private volatile boolean tourComputed;
+
+    /**
+     * Maximal duration of the computation of a tour, in milliseconds. The best tour found is kept when it is reached.
+     */
+    private int timeLimit = DEFAULT_TIME_LIMIT;
+
+    /**
+     * Relative gap to the optimal tour at which the computation stops, 0 to compute until the optimality is proven.
+     */
+    private double targetGap = 0;
+
+    /**
+     * The solver of the last computation, from which the optimality gap is read while it runs.
+     * Volatile as it is read by the GUI while the computation runs on another thread.
+     */
+    private volatile TSP solver;
+
+    /**
+     * The solvers which may compute the tour, and the choice of the solver suited to a planning
+     */
+    private final SolverRegistry solverRegistry = new SolverRegistry();
+
+    /**
+     * The graph of the last computation, whose shortest paths are reused when the graph is built again
      */
-    private boolean tourComputed;
+    private CompleteGraph lastGraph;
 
     /**
      * Whether a delivery address is visited before a pickup address.
@@ -134,6 +174,28 @@ public class Tour extends Observable {
     public Request getNewRequest() {
         return newRequest;
     }
+
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+
+    public SolverRegistry getSolverRegistry() {
+        return solverRegistry;
+    }
+
+    public double getTargetGap() {
+        return targetGap;
+    }
+
+    /**
+     * Give the optimality gap of the tour, which may be read while the tour is being computed
+     * @return the relative gap between the length of the best tour found and the lower bound proven by the solver,
+     * 0 if the tour is optimal, -1 if it is unknown
+     */
+    public double getOptimalityGap() {
+        TSP tsp = solver;
+        return tsp != null ? tsp.getOptimalityGap() : -1;
+    }
     /* SETTERS */
 
     public void setTourLength(double tourLength) {
@@ -144,7 +206,11 @@ public class Tour extends Observable {
         this.depotAddress = depotAddress;
     }
 
-    public void addShortestPaths(ShortestPath path) {this.listShortestPaths.add(path);}
+    public void addShortestPaths(ShortestPath path) {
+        ArrayList<ShortestPath> paths = new ArrayList<>(listShortestPaths);
+        paths.add(path);
+        this.listShortestPaths = paths;
+    }
 
     public void setDepartureTime(String departureTime) {
         this.calendar = Calendar.getInstance();
@@ -163,6 +229,14 @@ public class Tour extends Observable {
     public void setNewRequest(Request newRequest) {
         this.newRequest = newRequest;
     }
+
+    public void setTimeLimit(int timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public void setTargetGap(double targetGap) {
+        this.targetGap = targetGap;
+    }
     /* METHODS */
 
     /**
@@ -237,7 +311,7 @@ public class Tour extends Observable {
      */
     public void clearLists() {
         planningRequests.clear();
-        listShortestPaths.clear();
+        listShortestPaths = new ArrayList<>();
     }
 
     /**
@@ -257,14 +331,115 @@ public class Tour extends Observable {
      * @param allIntersectionsList the list with all intersections of the map
      */
     public void computeTour(List<Intersection> allIntersectionsList) {
-        ArrayList<Node> listNodes = new ArrayList<>();
+        CompleteGraph g = buildCompleteGraph(allIntersectionsList);
+        // the branch and bound would explore every order of the vertices sharing an address, they are merged first
+        if (SolverRegistry.BRANCH_AND_BOUND.equals(solverRegistry.selectName(g, timeLimit))) g = CollapsedGraph.collapse(g);
+        // exact dynamic programming for small plannings, branch and bound for medium ones, heuristic beyond
+        TSP tsp = solverRegistry.select(g, timeLimit);
+        tsp.setTargetGap(targetGap);
+        solver = tsp;
+
+        // Run Tour
+        tsp.searchSolution(timeLimit, g, this);
+    }
 
+    /**
+     * Improve the order of an edited tour, such as a tour where a request has just been added at the end.
+     * The solver starts from the current order of the tour instead of building a tour from scratch, and the shortest
+     * paths of the last computation are reused, so that only the paths from the new or changed addresses are computed.
+     * A vertex visited before one of its predecessors (a delivery moved before its pickup) is postponed after them.
+     * @param allIntersectionsList the list with all intersections of the map
+     * @param timeBudget the maximal duration of the re-optimization, in milliseconds
+     */
+    public void reoptimizeTour(List<Intersection> allIntersectionsList, int timeBudget) {
+        CompleteGraph g = buildCompleteGraph(allIntersectionsList);
+        TSP tsp = solverRegistry.select(g, timeBudget);
+        int[] order = currentOrder(g.getPrecedence());
+        if (order != null) tsp.setInitialSolution(order);
+        tsp.setTargetGap(targetGap);
+        solver = tsp;
+        setTourComputed(false);
+        tsp.searchSolution(timeBudget, g, this);
+    }
+
+    /**
+     * Read the order of the vertices of the graph from the shortest paths of the tour, each vertex being postponed
+     * after its predecessors
+     * @param precedence the precedence constraints between the vertices
+     * @return the order of the vertices starting from the depot, or null if the tour doesn't visit every vertex once
+     */
+    private int[] currentOrder(Precedence precedence) {
+        int nbVertices = 2 * planningRequests.size() + 1;
+        ArrayList<ShortestPath> paths = listShortestPaths;
+        if (paths.size() != nbVertices) return null;
+        int[] order = new int[nbVertices];
+        int length = 1;
+        boolean[] placed = new boolean[nbVertices];
+        placed[0] = true;
+        ArrayList<Integer> postponed = new ArrayList<>();
+        for (int i = 0; i < nbVertices - 1; i++) {
+            int vertex = paths.get(i).getEndNodeNumber();
+            if (vertex <= 0 || vertex >= nbVertices || placed[vertex] || postponed.contains(vertex)) return null;
+            postponed.add(vertex);
+            boolean progress = true;
+            while (progress) {
+                progress = false;
+                for (Iterator<Integer> it = postponed.iterator(); it.hasNext(); ) {
+                    int candidate = it.next();
+                    boolean ready = true;
+                    for (int predecessor : precedence.getPredecessors(candidate)) ready &= placed[predecessor];
+                    if (ready) {
+                        order[length++] = candidate;
+                        placed[candidate] = true;
+                        it.remove();
+                        progress = true;
+                    }
+                }
+            }
+        }
+        return postponed.isEmpty() ? order : null;
+    }
+
+    /**
+     * Runs Dijkstra from every useful point and creates the graph used by the TSP.
+     * @param allIntersectionsList the list with all intersections of the map
+     * @return the complete graph between the depot, the pickup and the delivery addresses
+     */
+    CompleteGraph buildCompleteGraph(List<Intersection> allIntersectionsList) {
+        ArrayList<Node> listNodes = new ArrayList<>();
         processDijkstraToComputeTour(allIntersectionsList, listNodes);
-        TSP tsp = new TSP3();
-        Graph g = new CompleteGraph(listNodes);
+        lastGraph = new CompleteGraph(listNodes);
+        return lastGraph;
+    }
 
-        // Run Tour
-        tsp.searchSolution(1000000, g, this);
+    /**
+     * Get the shortest paths from an intersection, from the graph of the last computation if it has them all, or by
+     * running Dijkstra
+     * @param allIntersectionsList the list with all intersections of the map
+     * @param listUsefulEndPoints the intersections which must be reached
+     * @param origin the intersection from which the shortest paths start
+     * @return the shortest paths from the origin to the useful end points
+     */
+    private ArrayList<ShortestPath> computeShortestPaths(List<Intersection> allIntersectionsList, ArrayList<Intersection> listUsefulEndPoints, Intersection origin) {
+        if (lastGraph != null) {
+            for (Node node : lastGraph.getTourNodes()) {
+                if (node.getIntersection() != origin) continue;
+                // the paths of the tour may have been edited since, only the ones still between the same addresses are kept
+                ArrayList<ShortestPath> paths = new ArrayList<>();
+                boolean complete = true;
+                for (Intersection end : listUsefulEndPoints) {
+                    if (paths.stream().anyMatch(x -> x.getEndAddress() == end)) continue;
+                    Optional<ShortestPath> path = node.getListArcs().stream().filter(x -> x.getStartAddress() == origin && x.getEndAddress() == end).findFirst();
+                    if (path.isEmpty()) {
+                        complete = false;
+                        break;
+                    }
+                    paths.add(path.get());
+                }
+                if (complete) return paths;
+            }
+        }
+        return Dijkstra.compute(allIntersectionsList, listUsefulEndPoints, origin);
     }
 
     /**
@@ -293,14 +468,14 @@ public class Tour extends Observable {
             identifyUsefulEndPoints(listUsefulEndPointsForDepot, i, pickupReq1, deliveryReq1, listUsefulEndPointsPickUp, listUsefulEndPointsDelivery);
 
             // execute Dijkstra
-            ArrayList<ShortestPath> shortestPathsFromPickUp = Dijkstra.compute(allIntersectionsList, listUsefulEndPointsPickUp, pickupReq1);
-            ArrayList<ShortestPath> shortestPathsFromDelivery = Dijkstra.compute(allIntersectionsList, listUsefulEndPointsDelivery, deliveryReq1);
+            ArrayList<ShortestPath> shortestPathsFromPickUp = computeShortestPaths(allIntersectionsList, listUsefulEndPointsPickUp, pickupReq1);
+            ArrayList<ShortestPath> shortestPathsFromDelivery = computeShortestPaths(allIntersectionsList, listUsefulEndPointsDelivery, deliveryReq1);
 
             listNodes.add(new Node(pickupReq1, shortestPathsFromPickUp));
             listNodes.add(new Node(deliveryReq1, shortestPathsFromDelivery));
         }
 
-        listNodes.add(0, new Node(depotAddress, Dijkstra.compute(allIntersectionsList, listUsefulEndPointsForDepot, depotAddress)));
+        listNodes.add(0, new Node(depotAddress, computeShortestPaths(allIntersectionsList, listUsefulEndPointsForDepot, depotAddress)));
 
     }
 
@@ -335,23 +510,34 @@ public class Tour extends Observable {
      * @param tsp the TSP used to compute the tour
      */
     public void updateTourInformation(ArrayList<Node> listNodes, long startTime, TSP tsp) {
-        this.setTourLength(tsp.getSolutionCost());
-        Integer[] intersectionsOrder = tsp.getBestSol();
-        listShortestPaths.clear();
+        updateTourInformation(listNodes, tsp.getBestSol(), tsp.getSolutionCost());
+    }
+
+    /**
+     * Replace the shortest paths of the tour by the ones following an order of the nodes, and notify the observers
+     * @param listNodes the list with all nodes in the tour
+     * @param intersectionsOrder the order of the nodes in the tour, starting from the depot
+     * @param tourLength the length of the tour
+     */
+    public void updateTourInformation(ArrayList<Node> listNodes, int[] intersectionsOrder, double tourLength) {
+        this.setTourLength(tourLength);
+        // the paths of the graph are copied, the graph may be shared with another tour
+        ArrayList<ShortestPath> paths = new ArrayList<>();
 
         for(int i=0; i< intersectionsOrder.length-1; i++) {
             Intersection end  = listNodes.get(intersectionsOrder[i+1]).getIntersection();
-            ShortestPath shortestPathToAdd = listNodes.get(intersectionsOrder[i]).getListArcs().stream().filter(x -> x.getEndAddress()==end).findFirst().get();
+            ShortestPath shortestPathToAdd = new ShortestPath(listNodes.get(intersectionsOrder[i]).getListArcs().stream().filter(x -> x.getEndAddress()==end).findFirst().get());
             shortestPathToAdd.setStartNodeNumber(intersectionsOrder[i]);
             shortestPathToAdd.setEndNodeNumber(intersectionsOrder[i+1]);
-            listShortestPaths.add(shortestPathToAdd);
+            paths.add(shortestPathToAdd);
             if(i==intersectionsOrder.length-2) {
-                shortestPathToAdd = listNodes.get(intersectionsOrder[i+1]).getListArcs().stream().filter(x -> x.getEndAddress()==depotAddress).findFirst().get();
+                shortestPathToAdd = new ShortestPath(listNodes.get(intersectionsOrder[i+1]).getListArcs().stream().filter(x -> x.getEndAddress()==depotAddress).findFirst().get());
                 shortestPathToAdd.setStartNodeNumber(intersectionsOrder[i+1]);
                 shortestPathToAdd.setEndNodeNumber(0);
-                listShortestPaths.add(shortestPathToAdd);
+                paths.add(shortestPathToAdd);
             }
         }
+        listShortestPaths = paths;
         updateTimes();
         notifyObservers();
     }
@@ -396,6 +582,20 @@ public class Tour extends Observable {
         }
     }
 
+    /**
+     * Copy the list of shortest paths and each of its paths, to build the next list of the tour without changing
+     * the one which may be read at the same time.
+     * @return the copy of the list of shortest paths
+     */
+    private ArrayList<ShortestPath> copyShortestPaths() {
+        ArrayList<ShortestPath> current = listShortestPaths;
+        ArrayList<ShortestPath> paths = new ArrayList<>(current.size());
+        for (ShortestPath path : current) {
+            paths.add(new ShortestPath(path));
+        }
+        return paths;
+    }
+
     /**
      * Insert a request to an already computed tour (after deleted a request).
      * Position of intersections are stored in Request.
@@ -407,8 +607,22 @@ public class Tour extends Observable {
      * @param allIntersections
      */
     public void insertRequest(int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, Request requestToInsert, List<Intersection> allIntersections) {
+        insertRequest(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, requestToInsert,
+                (start, end) -> Dijkstra.compute(allIntersections, new ArrayList<>(List.of(end)), start).get(0));
+    }
+
+    /**
+     * Insert a request to an already computed tour, the new shortest paths being given instead of computed.
+     * @param indexRequest index of the request in the planning
+     * @param indexShortestPathToPickup index of the shortest path arriving at the pickup address in the new tour
+     * @param indexShortestPathToDelivery index of the shortest path arriving at the delivery address in the new tour
+     * @param requestToInsert the request to insert
+     * @param shortestPaths gives a new shortest path from a start address to an end address
+     */
+    public void insertRequest(int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, Request requestToInsert, BiFunction<Intersection, Intersection, ShortestPath> shortestPaths) {
         // add request
         planningRequests.add(indexRequest, requestToInsert);
+        ArrayList<ShortestPath> paths = copyShortestPaths();
         Intersection pickupAddress = requestToInsert.getPickupAddress();
         Intersection deliveryAddress = requestToInsert.getDeliveryAddress();
 
@@ -420,29 +634,30 @@ public class Tour extends Observable {
             indexShortestPathToPickupToUpdate = indexShortestPathToPickup - 1;
         }
 
-        Intersection addressBeforePickup = listShortestPaths.get(indexShortestPathToPickupToUpdate).getStartAddress();
-        int nodeNumberBeforePickup = listShortestPaths.get(indexShortestPathToPickupToUpdate).getStartNodeNumber();
+        Intersection addressBeforePickup = paths.get(indexShortestPathToPickupToUpdate).getStartAddress();
+        int nodeNumberBeforePickup = paths.get(indexShortestPathToPickupToUpdate).getStartNodeNumber();
         nodeNumberBeforePickup = nodeNumberBeforePickup > indexRequest * 2 ? nodeNumberBeforePickup + 2 : nodeNumberBeforePickup;
-        Intersection addressBeforeDelivery = listShortestPaths.get(indexShortestPathToDeliveryToUpdate).getStartAddress();
-        int nodeNumberBeforeDelivery = listShortestPaths.get(indexShortestPathToDeliveryToUpdate).getStartNodeNumber();
+        Intersection addressBeforeDelivery = paths.get(indexShortestPathToDeliveryToUpdate).getStartAddress();
+        int nodeNumberBeforeDelivery = paths.get(indexShortestPathToDeliveryToUpdate).getStartNodeNumber();
         nodeNumberBeforeDelivery = nodeNumberBeforeDelivery > indexRequest * 2 ? nodeNumberBeforeDelivery + 2 : nodeNumberBeforeDelivery;
 
-        processShortestPaths(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, allIntersections, pickupAddress, deliveryAddress, indexShortestPathToPickupToUpdate, indexShortestPathToDeliveryToUpdate);
-        putShortestPathInPlace(indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, allIntersections, pickupAddress, deliveryAddress, addressBeforePickup, nodeNumberBeforePickup, addressBeforeDelivery, nodeNumberBeforeDelivery);
+        processShortestPaths(paths, indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, shortestPaths, pickupAddress, deliveryAddress, indexShortestPathToPickupToUpdate, indexShortestPathToDeliveryToUpdate);
+        putShortestPathInPlace(paths, indexRequest, indexShortestPathToPickup, indexShortestPathToDelivery, shortestPaths, pickupAddress, deliveryAddress, addressBeforePickup, nodeNumberBeforePickup, addressBeforeDelivery, nodeNumberBeforeDelivery);
+        listShortestPaths = paths;
 
         updateLength();
         updateTimes();
         notifyObservers();
     }
 
-    private void processShortestPaths(int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, List<Intersection> allIntersections, Intersection pickupAddress, Intersection deliveryAddress, int indexShortestPathToPickupToUpdate, int indexShortestPathToDeliveryToUpdate) {
-        for (int i = 0; i < listShortestPaths.size(); i++) {
-            ShortestPath currentShortestPath = listShortestPaths.get(i);
+    private void processShortestPaths(ArrayList<ShortestPath> paths, int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, BiFunction<Intersection, Intersection, ShortestPath> shortestPaths, Intersection pickupAddress, Intersection deliveryAddress, int indexShortestPathToPickupToUpdate, int indexShortestPathToDeliveryToUpdate) {
+        for (int i = 0; i < paths.size(); i++) {
+            ShortestPath currentShortestPath = paths.get(i);
             if (i == indexShortestPathToPickupToUpdate || i == indexShortestPathToDeliveryToUpdate) {
                 if (indexShortestPathToDeliveryToUpdate == indexShortestPathToPickupToUpdate) {
-                    setCurrentShortestPathAdd(allIntersections, currentShortestPath, indexShortestPathToPickup < indexShortestPathToDelivery ? deliveryAddress : pickupAddress, indexShortestPathToPickup < indexShortestPathToDelivery ? indexRequest * 2 + 2 : indexRequest * 2 + 1);
+                    setCurrentShortestPathAdd(shortestPaths, currentShortestPath, indexShortestPathToPickup < indexShortestPathToDelivery ? deliveryAddress : pickupAddress, indexShortestPathToPickup < indexShortestPathToDelivery ? indexRequest * 2 + 2 : indexRequest * 2 + 1);
                 } else {
-                    setCurrentShortestPathAdd(allIntersections, currentShortestPath, i == indexShortestPathToPickupToUpdate ? pickupAddress : deliveryAddress, i == indexShortestPathToPickupToUpdate ? indexRequest * 2 + 1 : indexRequest * 2 + 2);
+                    setCurrentShortestPathAdd(shortestPaths, currentShortestPath, i == indexShortestPathToPickupToUpdate ? pickupAddress : deliveryAddress, i == indexShortestPathToPickupToUpdate ? indexRequest * 2 + 1 : indexRequest * 2 + 2);
                 }
             } else if (currentShortestPath.getStartNodeNumber() > indexRequest * 2) {
                 currentShortestPath.setStartNodeNumber(currentShortestPath.getStartNodeNumber() + 2);
@@ -453,35 +668,35 @@ public class Tour extends Observable {
         }
     }
 
-    private void putShortestPathInPlace(int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, List<Intersection> allIntersections, Intersection pickupAddress, Intersection deliveryAddress, Intersection addressBeforePickup, int nodeNumberBeforePickup, Intersection addressBeforeDelivery, int nodeNumberBeforeDelivery) {
+    private void putShortestPathInPlace(ArrayList<ShortestPath> paths, int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, BiFunction<Intersection, Intersection, ShortestPath> shortestPaths, Intersection pickupAddress, Intersection deliveryAddress, Intersection addressBeforePickup, int nodeNumberBeforePickup, Intersection addressBeforeDelivery, int nodeNumberBeforeDelivery) {
         if (Math.abs(indexShortestPathToDelivery - indexShortestPathToPickup) == 1) {
             if (indexShortestPathToPickup < indexShortestPathToDelivery) {
-                addShortestPath(indexShortestPathToPickup, allIntersections, pickupAddress, deliveryAddress, indexRequest * 2 + 1, indexRequest * 2 + 2);
-                addShortestPath(indexShortestPathToPickup, allIntersections, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
+                addShortestPath(paths, indexShortestPathToPickup, shortestPaths, pickupAddress, deliveryAddress, indexRequest * 2 + 1, indexRequest * 2 + 2);
+                addShortestPath(paths, indexShortestPathToPickup, shortestPaths, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
             } else {
-                addShortestPath(indexShortestPathToDelivery, allIntersections, deliveryAddress, pickupAddress, indexRequest * 2 + 2, indexRequest * 2 + 1);
-                addShortestPath(indexShortestPathToDelivery, allIntersections, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
+                addShortestPath(paths, indexShortestPathToDelivery, shortestPaths, deliveryAddress, pickupAddress, indexRequest * 2 + 2, indexRequest * 2 + 1);
+                addShortestPath(paths, indexShortestPathToDelivery, shortestPaths, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
             }
         } else {
             if (indexShortestPathToPickup < indexShortestPathToDelivery) {
-                addShortestPath(indexShortestPathToPickup, allIntersections, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
-                addShortestPath(indexShortestPathToDelivery, allIntersections, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
+                addShortestPath(paths, indexShortestPathToPickup, shortestPaths, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
+                addShortestPath(paths, indexShortestPathToDelivery, shortestPaths, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
             } else {
-                addShortestPath(indexShortestPathToDelivery, allIntersections, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
-                addShortestPath(indexShortestPathToPickup, allIntersections, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
+                addShortestPath(paths, indexShortestPathToDelivery, shortestPaths, addressBeforeDelivery, deliveryAddress, nodeNumberBeforeDelivery, indexRequest * 2 + 2);
+                addShortestPath(paths, indexShortestPathToPickup, shortestPaths, addressBeforePickup, pickupAddress, nodeNumberBeforePickup, indexRequest * 2 + 1);
             }
         }
     }
 
-    private void addShortestPath(int indexToAdd, List<Intersection> allIntersections, Intersection startAddress, Intersection endAddress, int startNodeNumber, int endNodeNumber) {
-        ShortestPath shortestPathToDelivery = Dijkstra.compute(allIntersections, new ArrayList<>(List.of(endAddress)), startAddress).get(0);
+    private void addShortestPath(ArrayList<ShortestPath> paths, int indexToAdd, BiFunction<Intersection, Intersection, ShortestPath> shortestPaths, Intersection startAddress, Intersection endAddress, int startNodeNumber, int endNodeNumber) {
+        ShortestPath shortestPathToDelivery = shortestPaths.apply(startAddress, endAddress);
         shortestPathToDelivery.setStartNodeNumber(startNodeNumber);
         shortestPathToDelivery.setEndNodeNumber(endNodeNumber);
-        listShortestPaths.add(indexToAdd, shortestPathToDelivery);
+        paths.add(indexToAdd, shortestPathToDelivery);
     }
 
-    private void setCurrentShortestPathAdd(List<Intersection> allIntersections, ShortestPath currentShortestPath, Intersection endAddressBefore, int nodeNumberBefore) {
-        ShortestPath newShortestPath = Dijkstra.compute(allIntersections, new ArrayList<>(List.of(currentShortestPath.getEndAddress())), endAddressBefore).get(0);
+    private void setCurrentShortestPathAdd(BiFunction<Intersection, Intersection, ShortestPath> shortestPaths, ShortestPath currentShortestPath, Intersection endAddressBefore, int nodeNumberBefore) {
+        ShortestPath newShortestPath = shortestPaths.apply(endAddressBefore, currentShortestPath.getEndAddress());
         currentShortestPath.setListSegments(newShortestPath.getListSegments());
         currentShortestPath.setStartNodeNumber(nodeNumberBefore);
         currentShortestPath.setStartAddress(newShortestPath.getStartAddress());
@@ -499,15 +714,16 @@ public class Tour extends Observable {
     public void removeRequest(int indexRequest, int indexShortestPathToPickup, int indexShortestPathToDelivery, List<Intersection> allIntersections) {
         // remove request
         planningRequests.remove(indexRequest);
-        for (int i = 0; i < listShortestPaths.size() - 1; i++) {
+        ArrayList<ShortestPath> paths = copyShortestPaths();
+        for (int i = 0; i < paths.size() - 1; i++) {
             if (i != indexShortestPathToPickup + 1 && i != indexShortestPathToDelivery + 1) {
-                ShortestPath currentShortestPath = listShortestPaths.get(i);
+                ShortestPath currentShortestPath = paths.get(i);
                 if (i == indexShortestPathToPickup || i == indexShortestPathToDelivery) {
                     ShortestPath nextShortestPath;
                     if (Math.abs(indexShortestPathToDelivery - indexShortestPathToPickup) == 1) {
-                        nextShortestPath = listShortestPaths.get(i + 2);
+                        nextShortestPath = paths.get(i + 2);
                     } else {
-                        nextShortestPath = listShortestPaths.get(i + 1);
+                        nextShortestPath = paths.get(i + 1);
                     }
                     setCurrentShortestPathDelete(allIntersections, currentShortestPath, nextShortestPath);
                 }
@@ -516,12 +732,13 @@ public class Tour extends Observable {
             }
         }
 
-        listShortestPaths.remove(indexShortestPathToPickup + 1);
+        paths.remove(indexShortestPathToPickup + 1);
         if (indexShortestPathToPickup < indexShortestPathToDelivery) {
-            listShortestPaths.remove(indexShortestPathToDelivery);
+            paths.remove(indexShortestPathToDelivery);
         } else {
-            listShortestPaths.remove(indexShortestPathToDelivery + 1);
+            paths.remove(indexShortestPathToDelivery + 1);
         }
+        listShortestPaths = paths;
 
         updateLength();
         updateTimes();
@@ -547,20 +764,22 @@ public class Tour extends Observable {
         ArrayList<Intersection> intersections = new ArrayList<>();
         ArrayList<Integer> newOrder = new ArrayList<>();
         this.deliveryBeforePickup = false;
+        ArrayList<ShortestPath> paths = copyShortestPaths();
 
         // sanity check
-        if (indexShortestPath > 0 && indexShortestPath < listShortestPaths.size()-1) {
-            getIntersectionsAndOrderForFuturePaths(indexShortestPath, intersections, newOrder);
+        if (indexShortestPath > 0 && indexShortestPath < paths.size()-1) {
+            getIntersectionsAndOrderForFuturePaths(paths, indexShortestPath, intersections, newOrder);
 
             // remove paths from tour
-            deletedPaths.add(listShortestPaths.get(indexShortestPath-1));
-            deletedPaths.add(listShortestPaths.get(indexShortestPath));
-            deletedPaths.add(listShortestPaths.get(indexShortestPath+1));
-            listShortestPaths.remove(indexShortestPath-1);
-            listShortestPaths.remove(indexShortestPath-1);
-            listShortestPaths.remove(indexShortestPath-1);
-
-            recomputePathAfterMovingIntersection(indexShortestPath, allIntersections, intersections, newOrder);
+            deletedPaths.add(paths.get(indexShortestPath-1));
+            deletedPaths.add(paths.get(indexShortestPath));
+            deletedPaths.add(paths.get(indexShortestPath+1));
+            paths.remove(indexShortestPath-1);
+            paths.remove(indexShortestPath-1);
+            paths.remove(indexShortestPath-1);
+
+            recomputePathAfterMovingIntersection(paths, indexShortestPath, allIntersections, intersections, newOrder);
+            listShortestPaths = paths;
             // check if a delivery is before a pickup
             if (newOrder.get(2) == newOrder.get(1) - 1 && newOrder.get(1) % 2 == 0) this.deliveryBeforePickup = true;
 
@@ -574,12 +793,13 @@ public class Tour extends Observable {
      * Process the new path when moving an intersection in the textual view
      * If the moved intersection is in the middle of two intersections, Dijkstra
      * will be called three times.
+     * @param paths the new list of shortest paths of the tour
      * @param indexIntersection current position of the Intersection in the Tour
      * @param allIntersections all intersections of the map
      * @param intersections new list of intersections created
      * @param newOrder  new order created
      */
-    private void recomputePathAfterMovingIntersection(int indexIntersection, List<Intersection> allIntersections, ArrayList<Intersection> intersections, ArrayList<Integer> newOrder) {
+    private void recomputePathAfterMovingIntersection(ArrayList<ShortestPath> paths, int indexIntersection, List<Intersection> allIntersections, ArrayList<Intersection> intersections, ArrayList<Integer> newOrder) {
         for (int i = 0; i< intersections.size()-1; i++) {
             // init data for dijkstra
             ArrayList<Intersection> endPoint = new ArrayList<>();
@@ -591,27 +811,28 @@ public class Tour extends Observable {
             path.setEndNodeNumber(newOrder.get(i+1));
 
             // add path
-            listShortestPaths.add(indexIntersection -1+i, path);
+            paths.add(indexIntersection -1+i, path);
         }
     }
 
     /**
      * Create the new list of intersections and the new order to recompute the path
      * after moving a request in the textual view
+     * @param paths the new list of shortest paths of the tour
      * @param indexIntersection current position of the Intersection in the Tour
      * @param intersections new intersections for future paths
      * @param newOrder new Order for future paths
      */
-    private void getIntersectionsAndOrderForFuturePaths(int indexIntersection, ArrayList<Intersection> intersections, ArrayList<Integer> newOrder) {
-        intersections.add(listShortestPaths.get(indexIntersection -1).getStartAddress());
-        intersections.add(listShortestPaths.get(indexIntersection +1).getStartAddress());
-        intersections.add(listShortestPaths.get(indexIntersection).getStartAddress());
-        intersections.add(listShortestPaths.get(indexIntersection +1).getEndAddress());
+    private void getIntersectionsAndOrderForFuturePaths(ArrayList<ShortestPath> paths, int indexIntersection, ArrayList<Intersection> intersections, ArrayList<Integer> newOrder) {
+        intersections.add(paths.get(indexIntersection -1).getStartAddress());
+        intersections.add(paths.get(indexIntersection +1).getStartAddress());
+        intersections.add(paths.get(indexIntersection).getStartAddress());
+        intersections.add(paths.get(indexIntersection +1).getEndAddress());
 
-        newOrder.add(listShortestPaths.get(indexIntersection -1).getStartNodeNumber());
-        newOrder.add(listShortestPaths.get(indexIntersection +1).getStartNodeNumber());
-        newOrder.add(listShortestPaths.get(indexIntersection).getStartNodeNumber());
-        newOrder.add(listShortestPaths.get(indexIntersection +1).getEndNodeNumber());
+        newOrder.add(paths.get(indexIntersection -1).getStartNodeNumber());
+        newOrder.add(paths.get(indexIntersection +1).getStartNodeNumber());
+        newOrder.add(paths.get(indexIntersection).getStartNodeNumber());
+        newOrder.add(paths.get(indexIntersection +1).getEndNodeNumber());
     }
 
     public void changeAddress(int indexNode, Intersection newAddress, List<Intersection> intersections) {
@@ -622,18 +843,20 @@ public class Tour extends Observable {
             } else {
                 planningRequests.get(indexNode / 2).setPickupAddress(newAddress);
             }
+            ArrayList<ShortestPath> paths = copyShortestPaths();
 
-            ShortestPath shortestPathToNode = listShortestPaths.stream().filter(x -> x.getEndNodeNumber() == indexNode).findFirst().get();
+            ShortestPath shortestPathToNode = paths.stream().filter(x -> x.getEndNodeNumber() == indexNode).findFirst().get();
             ShortestPath newShortestPathToNode = Dijkstra.compute(intersections, new ArrayList<>(List.of(newAddress)), shortestPathToNode.getStartAddress()).get(0);
             shortestPathToNode.setEndAddress(newAddress);
             shortestPathToNode.setListSegments(newShortestPathToNode.getListSegments());
             shortestPathToNode.setPathLength(newShortestPathToNode.getPathLength());
 
-            ShortestPath shortestPathFromNode = listShortestPaths.stream().filter(x -> x.getStartNodeNumber() == indexNode).findFirst().get();
+            ShortestPath shortestPathFromNode = paths.stream().filter(x -> x.getStartNodeNumber() == indexNode).findFirst().get();
             ShortestPath newShortestPathFromNode = Dijkstra.compute(intersections, new ArrayList<>(List.of(shortestPathFromNode.getEndAddress())), newAddress).get(0);
             shortestPathFromNode.setStartAddress(newAddress);
             shortestPathFromNode.setListSegments(newShortestPathFromNode.getListSegments());
             shortestPathFromNode.setPathLength(newShortestPathFromNode.getPathLength());
+            listShortestPaths = paths;
 
             updateLength();
             updateTimes();
@@ -0,0 +1,183 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the sub-problems already solved by a branch and bound.
+ * A sub-problem is identified by the current vertex and the set of visited vertices: whatever the order in which the
+ * visited vertices have been reached, the remaining path from the current vertex through the unvisited vertices back to
+ * vertex 0 is the same problem. Once the subtree of a node has been explored, every completion cheaper than the best
+ * known cost minus the cost of the path has been found, which gives a lower bound of the cost to complete the tour
+ * valid for every later path reaching the same sub-problem.
+ * The table is an open addressing hash table with a fixed number of entries computed from a memory budget. An entry
+ * is overwritten by the next sub-problem with the same hash, so the memory used never grows during the search.
+ */
+public class TranspositionTable {
+
+    /**
+     * The memory used by the table when none is given, in bytes
+     */
+    public static final long DEFAULT_SIZE = 32L << 20;
+
+    /* ATTRIBUTES */
+
+    /**
+     * The number of words of a bitset of visited vertices
+     */
+    private final int nbWords;
+
+    /**
+     * The mask giving the index of an entry from a hash, the number of entries is a power of 2
+     */
+    private final int mask;
+
+    /**
+     * The visited vertices of each entry, <code>nbWords</code> words per entry
+     */
+    private final long[] keys;
+
+    /**
+     * The current vertex of each entry (-1 if the entry is empty)
+     */
+    private final int[] vertices;
+
+    /**
+     * The lower bound of the cost to complete the tour of each entry
+     */
+    private final double[] lowerBounds;
+
+    /**
+     * The number of lookups which found their sub-problem
+     */
+    private long nbHits;
+
+    /**
+     * The number of lookups which didn't find their sub-problem
+     */
+    private long nbMisses;
+
+    /**
+     * The number of nodes pruned thanks to the table
+     */
+    private long nbCutoffs;
+
+    /**
+     * Create an empty table
+     * @param nbVertices the number of vertices of the graph
+     * @param maxBytes the maximal memory used by the table, in bytes
+     */
+    public TranspositionTable(int nbVertices, long maxBytes) {
+        nbWords = (nbVertices + 63) >>> 6;
+        long entryBytes = 8L * nbWords + 4 + 8;
+        // no more entries than sub-problems: a current vertex and a subset of the other vertices
+        long nbSubProblems = nbVertices < 32 ? (long) nbVertices << (nbVertices - 1) : Long.MAX_VALUE;
+        int capacity = 1;
+        while (capacity < (1 << 30) && capacity < nbSubProblems && 2L * capacity * entryBytes <= maxBytes) capacity <<= 1;
+        mask = capacity - 1;
+        keys = new long[capacity * nbWords];
+        vertices = new int[capacity];
+        lowerBounds = new double[capacity];
+        Arrays.fill(vertices, -1);
+    }
+
+    /**
+     * Look for a sub-problem in the table
+     * @param currentVertex the current vertex
+     * @param visited the bitset of visited vertices
+     * @return the index of the entry of the sub-problem, or -1 if it is not in the table
+     */
+    public int find(int currentVertex, long[] visited) {
+        int entry = index(currentVertex, visited);
+        if (vertices[entry] == currentVertex && sameKey(entry, visited)) {
+            nbHits++;
+            return entry;
+        }
+        nbMisses++;
+        return -1;
+    }
+
+    /**
+     * Store the result of the exploration of a sub-problem, replacing the entry with the same hash
+     * @param currentVertex the current vertex
+     * @param visited the bitset of visited vertices
+     * @param lowerBound a lower bound of the cost to complete the tour
+     */
+    public void store(int currentVertex, long[] visited, double lowerBound) {
+        int entry = index(currentVertex, visited);
+        if (vertices[entry] == currentVertex && sameKey(entry, visited)) {
+            lowerBound = Math.max(lowerBound, lowerBounds[entry]);
+        } else {
+            vertices[entry] = currentVertex;
+            System.arraycopy(visited, 0, keys, entry * nbWords, nbWords);
+        }
+        lowerBounds[entry] = lowerBound;
+    }
+
+    /**
+     * Count a node pruned thanks to the table
+     */
+    void countCutoff() {
+        nbCutoffs++;
+    }
+
+    /**
+     * @param entry the index of an entry
+     * @return the lower bound of the cost to complete the tour of the entry
+     */
+    public double getLowerBound(int entry) {
+        return lowerBounds[entry];
+    }
+
+    /**
+     * @return the number of entries of the table
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Getter for nbHits attribute.
+     * @return the number of lookups which found their sub-problem
+     */
+    public long getNbHits() {
+        return nbHits;
+    }
+
+    /**
+     * Getter for nbMisses attribute.
+     * @return the number of lookups which didn't find their sub-problem
+     */
+    public long getNbMisses() {
+        return nbMisses;
+    }
+
+    /**
+     * Getter for nbCutoffs attribute.
+     * @return the number of nodes pruned thanks to the table
+     */
+    public long getNbCutoffs() {
+        return nbCutoffs;
+    }
+
+    /**
+     * @param currentVertex the current vertex
+     * @param visited the bitset of visited vertices
+     * @return the index of the entry of the sub-problem
+     */
+    private int index(int currentVertex, long[] visited) {
+        long hash = currentVertex;
+        for (long word : visited) hash = (hash ^ word) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * @param entry the index of an entry
+     * @param visited the bitset of visited vertices
+     * @return whether the entry holds the same visited vertices
+     */
+    private boolean sameKey(int entry, long[] visited) {
+        int offset = entry * nbWords;
+        for (int w = 0; w < nbWords; w++) if (keys[offset + w] != visited[w]) return false;
+        return true;
+    }
+}
@@ -277,8 +277,10 @@ public class TextualView extends JPanel implements Observer {
         addLine(tourFirstPanel, "Starting at", tour.getDepartureTime(), false, 14);
         addLine(tourFirstPanel, "Ending at", tour.getArrivalTime(), false, 14);
         addLine(tourFirstPanel, "Total duration", tour.getTotalDuration(), false, 14);
+        double optimalityGap = tour.getOptimalityGap();
+        if (optimalityGap >= 0) addLine(tourFirstPanel, "Optimality gap", Window.formatOptimalityGap(optimalityGap), false, 14);
 
-        tourFirstPanel.setMaximumSize(new Dimension(getPreferredSize().width, 130 + gap));
+        tourFirstPanel.setMaximumSize(new Dimension(getPreferredSize().width, (optimalityGap >= 0 ? 156 : 130) + gap));
         tourMainPanel.add(tourFirstPanel);
         tourMainPanel.add(Box.createRigidArea(new Dimension(0, gap)));
     }
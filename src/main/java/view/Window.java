@@ -23,6 +23,9 @@ public class Window extends JFrame {
     protected static final String UNDO = "Undo";
     protected static final String REDO = "Redo";
 
+    // Delay between two updates of the optimality gap during the computation, in milliseconds
+    private static final int COMPUTING_REFRESH_DELAY = 500;
+
 
     private ArrayList<JButton> buttons;
     private JPanel header;
@@ -33,6 +36,7 @@ public class Window extends JFrame {
     private final GraphicalView graphicalView;
     private final TextualView textualView;
     private final PopUpView popUpView;
+    private final Timer computingTimer;
 
     // Listeners
     private final ButtonListener buttonListener;
@@ -54,6 +58,8 @@ public class Window extends JFrame {
         graphicalView = new GraphicalView(cityMap, tour, mouseListener);
         textualView = new TextualView(tour, this, mouseListener, buttonListener);
         popUpView = new PopUpView(this, mouseListener, buttonListener);
+        // the lower bound of the solver rises without any new tour, the gap is read again while the computation goes on
+        computingTimer = new Timer(COMPUTING_REFRESH_DELAY, e -> setPopUpGraphicalViewForComputing(tour.getOptimalityGap()));
         KeyboardListener keyboardListener = new KeyboardListener(popUpView, controller);
         addKeyListener(keyboardListener);
         createHeader();
@@ -95,8 +101,9 @@ public class Window extends JFrame {
         getContentPane().add(graphicalPanel);
     }
 
-    private void setPopUpGraphicalViewForComputing() {
-        popUpGraphicalViewMessage.setText("<html><p>Computation of best tour in progress...<br/>You can stop the computation and continue with the best tour currently found.</p></html>");
+    private void setPopUpGraphicalViewForComputing(double optimalityGap) {
+        String gap = optimalityGap >= 0 ? "<br/>Optimality gap: " + formatOptimalityGap(optimalityGap) : "";
+        popUpGraphicalViewMessage.setText("<html><p>Computation of best tour in progress...<br/>You can stop the computation and continue with the best tour currently found." + gap + "</p></html>");
         popUpGraphicalViewButton.setText(STOP_COMPUTATION);
         popUpGraphicalViewButton.setPreferredSize(new Dimension(160, popUpGraphicalViewButton.getPreferredSize().height));
     }
@@ -281,17 +288,31 @@ public class Window extends JFrame {
      */
     public void setRedoButtonState(boolean state) { buttons.get(buttons.size()-1).setEnabled(state);}
 
+    /**
+     * Show the pop-up of the computation, with the optimality gap of the best tour found updated until it is hidden
+     */
     public void showComputingPanel() {
-        setPopUpGraphicalViewForComputing();
+        setPopUpGraphicalViewForComputing(-1);
         graphicalPanel.add(popUpGraphicalView, BorderLayout.PAGE_START);
         revalidate();
+        computingTimer.start();
     }
 
     public void hideComputingPanel() {
+        computingTimer.stop();
         graphicalPanel.remove(popUpGraphicalView);
         revalidate();
     }
 
+    /**
+     * Format an optimality gap for the views
+     * @param optimalityGap the relative gap between the length of the tour and the lower bound, 0 if it is optimal
+     * @return the gap as a percentage, or "optimal"
+     */
+    static String formatOptimalityGap(double optimalityGap) {
+        return optimalityGap == 0 ? "optimal" : String.format("%.2f", 100 * optimalityGap) + " %";
+    }
+
     public void enterSelectionMode() {
         setPopUpGraphicalViewForSelection();
         graphicalPanel.add(popUpGraphicalView, BorderLayout.PAGE_START);
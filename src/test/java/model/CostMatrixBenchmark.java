@@ -0,0 +1,85 @@
+package model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import xml.XMLDeserializer;
+
+import java.io.File;
+import java.text.MessageFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark of the cost accessors, out of the unit test suite (its name doesn't match the tests run by Maven).
+ * Run it with <code>mvn test -Dtest=CostMatrixBenchmark</code>.
+ * The unchecked accessors of the cost matrix are compared with the accessors of a <code>CompleteGraph</code> called
+ * with their own type only, so that the JIT can inline both of them.
+ */
+@DisplayName("CostMatrix benchmark")
+public class CostMatrixBenchmark {
+
+    /**
+     * The number of times every cost is read by a run
+     */
+    private static final int ROUNDS = 20000;
+
+    /**
+     * The number of runs, the first ones warming the JIT up
+     */
+    private static final int RUNS = 5;
+
+    @Test
+    @DisplayName("Complete graph against cost matrix")
+    void completeGraphAgainstCostMatrix() throws Exception {
+        CityMap cityMap = new CityMap();
+        Tour tour = new Tour();
+        XMLDeserializer.deserializeMap(cityMap, XMLDeserializer.extractDocument(new File("src/main/resources/fichiersXML2020/largeMap.xml")));
+        XMLDeserializer.deserializeRequests(tour, cityMap, XMLDeserializer.extractDocument(new File("src/main/resources/fichiersXML2020/requestsLarge9.xml")));
+        CompleteGraph graph = tour.buildCompleteGraph(cityMap.getIntersections());
+        CostMatrix costs = graph.getCostMatrix();
+
+        double graphSum = 0, matrixSum = 0;
+        long graphTime = Long.MAX_VALUE, matrixTime = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            graphSum = sumOfCosts(graph);
+            graphTime = Math.min(graphTime, System.nanoTime() - start);
+            start = System.nanoTime();
+            matrixSum = sumOfCosts(costs);
+            matrixTime = Math.min(matrixTime, System.nanoTime() - start);
+        }
+        System.out.println(MessageFormat.format("Complete graph: {0} ms, cost matrix: {1} ms (best of {2} runs)",
+                graphTime / 1000000, matrixTime / 1000000, RUNS));
+        assertEquals(graphSum, matrixSum, 1e-6, "Both accessors must read the same costs");
+    }
+
+    /**
+     * @param g a complete graph
+     * @return the sum of the costs of the arcs, read through the accessors of the complete graph
+     */
+    private double sumOfCosts(CompleteGraph g) {
+        int n = g.getNbVertices();
+        double sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) if (g.isArc(i, j)) sum += g.getCost(i, j);
+            }
+        }
+        return sum / ROUNDS;
+    }
+
+    /**
+     * @param costs a cost matrix
+     * @return the sum of the costs of the arcs, read through the unchecked accessors
+     */
+    private double sumOfCosts(CostMatrix costs) {
+        int n = costs.getNbVertices();
+        double sum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) if (costs.arc(i, j)) sum += costs.cost(i, j);
+            }
+        }
+        return sum / ROUNDS;
+    }
+}
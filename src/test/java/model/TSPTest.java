@@ -0,0 +1,1226 @@
+package model;
+
+import org.junit.jupiter.api.*;
+import xml.XMLDeserializer;
+
+import java.io.File;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("TSPTest test case")
+public class TSPTest {
+    static Instant startedAt;
+    private CityMap cityMap;
+    private Tour tour;
+    private CompleteGraph graph;
+
+    @BeforeAll
+    static public void initStartingTime() {
+        startedAt = Instant.now();
+    }
+
+    @AfterAll
+    static public void showTestDuration() {
+        Instant endedAt = Instant.now();
+        long duration = Duration.between(startedAt, endedAt).toMillis();
+        System.out.println(MessageFormat.format("Test duration : {0} ms", duration));
+    }
+
+    /**
+     * Load a map and a planning from the XML files given with the application, and build the graph of the TSP
+     * @param mapFile the name of the map file
+     * @param requestsFile the name of the requests file
+     */
+    private void loadPlanning(String mapFile, String requestsFile) throws Exception {
+        cityMap = new CityMap();
+        tour = new Tour();
+        XMLDeserializer.deserializeMap(cityMap, XMLDeserializer.extractDocument(new File("src/main/resources/fichiersXML2020/" + mapFile)));
+        XMLDeserializer.deserializeRequests(tour, cityMap, XMLDeserializer.extractDocument(new File("src/main/resources/fichiersXML2020/" + requestsFile)));
+        graph = tour.buildCompleteGraph(cityMap.getIntersections());
+    }
+
+    /**
+     * Run a solver on the loaded planning
+     * @param tsp the solver
+     * @return the cost of the computed tour
+     */
+    private double solve(TSP tsp) {
+        tour.setTourComputed(false);
+        tsp.searchSolution(100000, graph, tour);
+        checkSolution(tsp);
+        return tsp.getSolutionCost();
+    }
+
+    /**
+     * Check that a solution visits every vertex once, starting from the depot, and every pickup before its delivery
+     * @param tsp the solver
+     */
+    private void checkSolution(TSP tsp) {
+        int[] solution = tsp.getBestSol();
+        checkOrder(solution);
+        double cost = 0;
+        for (int i = 0; i < solution.length; i++) cost += graph.getCost(solution[i], solution[(i + 1) % solution.length]);
+        assertEquals(cost, tsp.getSolutionCost(), 1e-6, "Solution cost must be the cost of the tour");
+    }
+
+    /**
+     * Check that an order visits every vertex once, starting from the depot, and every pickup before its delivery
+     * @param order the order of the vertices
+     */
+    private void checkOrder(int[] order) {
+        assertEquals(graph.getNbVertices(), order.length, "Every vertex must be visited");
+        assertEquals(0, order[0], "Tour must start from the depot");
+        int[] rank = new int[order.length];
+        Arrays.fill(rank, -1);
+        for (int i = 0; i < order.length; i++) rank[order[i]] = i;
+        for (int vertex = 0; vertex < order.length; vertex++) {
+            assertTrue(rank[vertex] >= 0, "Every vertex must be visited");
+        }
+        for (int vertex = 2; vertex < order.length; vertex += 2) {
+            assertTrue(rank[vertex - 1] < rank[vertex], "Pickup must be visited before its delivery");
+        }
+    }
+
+    /**
+     * Method to test:
+     * HeldKarpTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Compute the optimal tour by dynamic programming
+     */
+    @Nested
+    @DisplayName("Test on HeldKarpTSP")
+    class TestHeldKarpTSP {
+        @Test
+        @DisplayName("Same cost as branch and bound")
+        void sameCostAsBranchAndBound() throws Exception {
+            loadPlanning("mediumMap.xml", "requestsMedium5.xml");
+
+            // Method to test
+            double cost = solve(new HeldKarpTSP());
+
+            // Check answer
+            assertEquals(solve(new TSP3()), cost, 1e-6, "Dynamic programming must find the optimal tour");
+        }
+
+        @Test
+        @DisplayName("Large planning")
+        void largePlanning() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+
+            // Method to test
+            solve(new HeldKarpTSP());
+
+            // Check answer
+            assertTrue(tour.isTourComputed(), "Computation must be over");
+            assertEquals(graph.getNbVertices(), tour.getListShortestPaths().size(), "Every address must be visited");
+        }
+
+        @Test
+        @DisplayName("Heuristic tour kept when time is over")
+        void heuristicTourKeptWhenTimeIsOver() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            Tour otherPlanning = new Tour();
+            XMLDeserializer.deserializeRequests(otherPlanning, cityMap, XMLDeserializer.extractDocument(new File("src/main/resources/fichiersXML2020/requestsLarge7.xml")));
+            for (int r = 0; r < HeldKarpTSP.MAX_REQUESTS - 9; r++) tour.addRequest(otherPlanning.getPlanningRequests().get(r));
+            graph = tour.buildCompleteGraph(cityMap.getIntersections());
+            HeldKarpTSP tsp = new HeldKarpTSP();
+            tour.setTourComputed(false);
+
+            // Method to test
+            Instant start = Instant.now();
+            tsp.searchSolution(50, graph, tour);
+            long duration = Duration.between(start, Instant.now()).toMillis();
+
+            // Check answer
+            System.out.println(MessageFormat.format("HeldKarpTSP: {0} requests in {1} ms with a 50 ms limit", tour.getPlanningRequests().size(), duration));
+            assertTrue(duration < 250, "Dynamic programming must stop at the time limit");
+            checkSolution(tsp);
+            assertEquals(graph.getNbVertices(), tour.getListShortestPaths().size(), "Heuristic tour must be published");
+        }
+    }
+
+    /**
+     * Method to test:
+     * ParallelTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Compute the optimal tour with a branch and bound shared by several threads
+     */
+    @Nested
+    @DisplayName("Test on ParallelTSP")
+    class TestParallelTSP {
+        @Test
+        @DisplayName("Same cost as sequential search")
+        void sameCostAsSequentialSearch() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+
+            // Method to test
+            double cost = solve(new ParallelTSP(TSP3::new, 4));
+
+            // Check answer
+            assertEquals(solve(new HeldKarpTSP()), cost, 1e-6, "Parallel search must find the optimal tour");
+            assertEquals(cost, tour.getTourLength(), 1e-6, "Published tour must be the best one");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TemplateTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Stop the branch and bound when the time limit is reached and keep the best tour found
+     */
+    @Nested
+    @DisplayName("Test on time limit")
+    class TestTimeLimit {
+        @Test
+        @DisplayName("Best tour kept when time is over")
+        void bestTourKeptWhenTimeIsOver() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            TSP1 tsp = new TSP1();
+            tour.setTourComputed(false);
+            Instant start = Instant.now();
+
+            // Method to test
+            tsp.searchSolution(200, graph, tour);
+
+            // Check answer
+            assertTrue(Duration.between(start, Instant.now()).toMillis() < 2000, "Search must stop at the time limit");
+            assertTrue(tsp.isTimeLimitReached(), "Search must be stopped by the time limit");
+            assertTrue(tour.isTourComputed(), "Computation must be over");
+            checkSolution(tsp);
+            assertEquals(tsp.getSolutionCost(), tour.getTourLength(), 1e-6, "Best tour found must be published");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TSP4.searchSolution()
+     * <p>
+     * What it does:
+     * Compute the optimal tour with a bound maintained incrementally
+     */
+    @Nested
+    @DisplayName("Test on TSP4")
+    class TestTSP4 {
+        @Test
+        @DisplayName("Same cost as dynamic programming")
+        void sameCostAsDynamicProgramming() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+
+            // Method to test
+            double cost = solve(new TSP4());
+
+            // Check answer
+            assertEquals(solve(new HeldKarpTSP()), cost, 1e-6, "Incremental bound must not prune the optimal tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TSP5.searchSolution()
+     * <p>
+     * What it does:
+     * Compute the optimal tour with the assignment relaxation as bound, and compare it with TSP3 and TSP4
+     */
+    @Nested
+    @DisplayName("Test on TSP5")
+    class TestTSP5 {
+        @Test
+        @DisplayName("Benchmark of the bounds")
+        void benchmarkOfTheBounds() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            TemplateTSP[] solvers = {new TSP3(), new TSP4(), new TSP5()};
+            long[] nbNodes = new long[solvers.length];
+
+            // Method to test
+            for (int i = 0; i < solvers.length; i++) {
+                Instant start = Instant.now();
+                solve(solvers[i]);
+                nbNodes[i] = solvers[i].getNbExploredNodes();
+                System.out.println(MessageFormat.format("{0}: {1} nodes, optimal tour after {2} ms, search over after {3} ms",
+                        solvers[i].getClass().getSimpleName(), nbNodes[i], solvers[i].getTimeToBestSolution(),
+                        Duration.between(start, Instant.now()).toMillis()));
+            }
+
+            // Check answer
+            assertEquals(solvers[0].getSolutionCost(), solvers[2].getSolutionCost(), 1e-6, "Assignment bound must not prune the optimal tour");
+            assertTrue(nbNodes[2] < nbNodes[1] && nbNodes[1] < nbNodes[0], "Stronger bounds must explore fewer nodes");
+            for (TemplateTSP solver : solvers) assertTrue(solver.getTimeToBestSolution() >= 0, "Time to the best tour must be known after a search");
+            assertEquals(-1, new TSP3().getTimeToBestSolution(), "Time to the best tour must be -1 before any search");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TemplateTSP.seed()
+     * <p>
+     * What it does:
+     * Build a first tour by cheapest insertion and local search, and publish it before the branch and bound
+     */
+    @Nested
+    @DisplayName("Test on seed")
+    class TestSeed {
+        @Test
+        @DisplayName("Heuristic tour published at once")
+        void heuristicTourPublishedAtOnce() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            double optimalCost = solve(new HeldKarpTSP());
+            TSP4 tsp = new TSP4();
+            long startTime = System.currentTimeMillis();
+            SolutionPublisher publisher = new SolutionPublisher(tour, graph);
+            tsp.prepare(graph, new Incumbent(graph.getNbVertices()), publisher, startTime, startTime + 1000);
+            tour.setTourComputed(false);
+
+            // Method to test
+            tsp.seed(tour);
+            publisher.close();
+
+            // Check answer
+            checkSolution(tsp);
+            assertEquals(tsp.getSolutionCost(), tour.getTourLength(), 1e-6, "Heuristic tour must be published");
+            assertTrue(tsp.getSolutionCost() >= optimalCost - 1e-6, "Heuristic tour can't be better than the optimal one");
+            System.out.println(MessageFormat.format("Heuristic tour: {0}, optimal tour: {1}", tsp.getSolutionCost(), optimalCost));
+        }
+    }
+
+    /**
+     * Method to test:
+     * LargeNeighbourhoodSearchTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Improve a tour by removing and inserting back requests for a number of iterations, and publish the best tour
+     */
+    @Nested
+    @DisplayName("Test on LargeNeighbourhoodSearchTSP")
+    class TestLargeNeighbourhoodSearchTSP {
+        @Test
+        @DisplayName("Near optimal tour within the iteration limit")
+        void nearOptimalTourWithinIterationLimit() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double optimalCost = solve(new HeldKarpTSP());
+            LargeNeighbourhoodSearchTSP tsp = new LargeNeighbourhoodSearchTSP(new Random(0));
+            tsp.setMaxIterations(2000);
+            tour.setTourComputed(false);
+
+            // Method to test
+            tsp.searchSolution(Integer.MAX_VALUE, graph, tour);
+
+            // Check answer
+            assertEquals(2000, tsp.getNbIterations(), "Search must stop at the iteration limit");
+            checkSolution(tsp);
+            assertEquals(tsp.getSolutionCost(), tour.getTourLength(), 1e-6, "Best tour found must be published");
+            assertTrue(tsp.getSolutionCost() >= optimalCost - 1e-6, "Tour can't be better than the optimal one");
+            assertTrue(tsp.getSolutionCost() <= optimalCost * 1.02, "Tour must be close to the optimal one");
+            System.out.println(MessageFormat.format("{0} iterations, tour: {1}, optimal tour: {2}",
+                    tsp.getNbIterations(), tsp.getSolutionCost(), optimalCost));
+        }
+
+        @Test
+        @DisplayName("Same tour with the same random generator")
+        void sameTourWithSameRandomGenerator() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double[] costs = new double[2];
+            for (int run = 0; run < costs.length; run++) {
+                LargeNeighbourhoodSearchTSP tsp = new LargeNeighbourhoodSearchTSP(new Random(0));
+                tsp.setMaxIterations(500);
+                tour.setTourComputed(false);
+
+                // Method to test
+                tsp.searchSolution(Integer.MAX_VALUE, graph, tour);
+                costs[run] = tsp.getSolutionCost();
+            }
+
+            // Check answer
+            assertEquals(costs[0], costs[1], "Search must be reproducible with an iteration limit");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TemplateTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Prune the sub-problems already explored through another order of the same visited vertices
+     */
+    @Nested
+    @DisplayName("Test on transposition table")
+    class TestTranspositionTable {
+        @Test
+        @DisplayName("Same cost with fewer nodes")
+        void sameCostWithFewerNodes() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            TSP4 withoutTable = new TSP4();
+            withoutTable.setTranspositionTableSize(0);
+            TSP4 withTable = new TSP4();
+
+            // Method to test
+            double cost = solve(withTable);
+
+            // Check answer
+            assertEquals(solve(withoutTable), cost, 1e-6, "Transposition table must not prune the optimal tour");
+            assertTrue(withTable.getNbExploredNodes() < withoutTable.getNbExploredNodes(), "Transposition table must prune nodes");
+            TranspositionTable table = withTable.getTranspositionTable();
+            assertTrue(table.getNbHits() > 0 && table.getNbCutoffs() <= table.getNbHits(), "Cutoffs must come from hits");
+            // an entry holds one word of visited vertices, a vertex and a bound
+            assertTrue(new TranspositionTable(graph.getNbVertices(), 1 << 20).getCapacity() * (8 + 4 + 8) <= 1 << 20, "Table must stay within its memory budget");
+            System.out.println(MessageFormat.format("{0} nodes instead of {1}, {2} hits, {3} misses, {4} cutoffs",
+                    withTable.getNbExploredNodes(), withoutTable.getNbExploredNodes(),
+                    table.getNbHits(), table.getNbMisses(), table.getNbCutoffs()));
+        }
+    }
+
+    /**
+     * Method to test:
+     * MinIter.reset()
+     * <p>
+     * What it does:
+     * List the eligible successors of a vertex from the nearest to the farthest, with the successors sorted once by
+     * the cost matrix of any graph
+     */
+    @Nested
+    @DisplayName("Test on MinIter")
+    class TestMinIter {
+        @Test
+        @DisplayName("Successors sorted by cost")
+        void successorsSortedByCost() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            CostMatrix costs = CostMatrix.of(graph);
+            int nbVertices = costs.getNbVertices();
+            long[] visited = {1L};
+            int[] unvisited = new int[nbVertices - 1];
+            for (int i = 1; i < nbVertices; i++) unvisited[i - 1] = i;
+            MinIter it = new MinIter(nbVertices);
+
+            for (int vertex = 0; vertex < nbVertices; vertex++) {
+                // Method to test
+                it.reset(vertex, unvisited, nbVertices - 1, visited, costs);
+
+                // Check answer
+                List<Integer> candidates = new ArrayList<>();
+                while (it.hasNext()) candidates.add(it.nextInt());
+                List<Integer> expected = new ArrayList<>();
+                for (int j = 1; j < nbVertices; j++) {
+                    if (costs.arc(vertex, j) && costs.getPrecedence().isEligible(j, visited)) expected.add(j);
+                }
+                int from = vertex;
+                expected.sort((i, j) -> Double.compare(costs.cost(from, i), costs.cost(from, j)));
+                assertEquals(expected.size(), candidates.size(), "Every eligible successor must be a candidate");
+                for (int k = 0; k < expected.size(); k++) {
+                    assertEquals(costs.cost(vertex, expected.get(k)), costs.cost(vertex, candidates.get(k)), 1e-9, "Candidates must be sorted by ascending cost");
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Search on a cost matrix")
+        void searchOnCostMatrix() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            double cost = solve(new TSP4());
+            TSP3 tsp3 = new TSP3();
+            TSP4 tsp4 = new TSP4();
+
+            // Method to test
+            tour.setTourComputed(false);
+            tsp3.searchSolution(100000, CostMatrix.of(graph), tour);
+            tour.setTourComputed(false);
+            tsp4.searchSolution(100000, CostMatrix.of(graph), tour);
+
+            // Check answer
+            assertEquals(cost, tsp3.getSolutionCost(), 1e-6, "Search on the cost matrix must find the optimal tour");
+            assertEquals(cost, tsp4.getSolutionCost(), 1e-6, "Search on the cost matrix must find the optimal tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * Precedence.isEligible()
+     * <p>
+     * What it does:
+     * Compute the optimal tour when a delivery waits for several pickups
+     */
+    @Nested
+    @DisplayName("Test on precedence constraints")
+    class TestPrecedence {
+        @Test
+        @DisplayName("Delivery after several pickups")
+        void deliveryAfterSeveralPickups() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            double pairsCost = solve(new TSP4());
+            Precedence precedence = Precedence.pickupDelivery(graph.getNbVertices());
+            precedence.add(3, 2);
+            precedence.add(5, 2);
+            graph = new CompleteGraph(graph.listNodesGraph, precedence);
+
+            // Method to test
+            TSP5 tsp = new TSP5();
+            double cost = solve(tsp);
+
+            // Check answer
+            int[] rank = new int[graph.getNbVertices()];
+            for (int i = 0; i < rank.length; i++) rank[tsp.getBestSol()[i]] = i;
+            assertTrue(rank[3] < rank[2] && rank[5] < rank[2], "Delivery must be visited after all its pickups");
+            assertTrue(cost >= pairsCost - 1e-6, "More constraints can't give a cheaper tour");
+            assertEquals(solve(new TSP3()), cost, 1e-6, "Bounds must not prune the optimal tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * SolutionPublisher.post()
+     * <p>
+     * What it does:
+     * Update the tour at a bounded rate with the latest posted solution
+     */
+    @Nested
+    @DisplayName("Test on SolutionPublisher")
+    class TestSolutionPublisher {
+        @Test
+        @DisplayName("Latest solution published at a bounded rate")
+        void latestSolutionPublishedAtBoundedRate() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            HeldKarpTSP tsp = new HeldKarpTSP();
+            solve(tsp);
+            int[] order = new int[graph.getNbVertices()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            SolutionPublisher publisher = new SolutionPublisher(tour, graph);
+
+            // Method to test
+            for (int i = 0; i < 1000; i++) publisher.post(order, LocalSearch.tourCost(graph, order));
+            publisher.post(tsp.getBestSol(), tsp.getSolutionCost());
+            publisher.close();
+
+            // Check answer
+            assertEquals(1001, publisher.getNbPosts(), "Every solution must be posted");
+            assertTrue(publisher.getNbPublications() <= 3, "Tour must be updated at most once per interval and when closed");
+            assertEquals(tsp.getSolutionCost(), tour.getTourLength(), 1e-6, "Latest solution must be published");
+        }
+    }
+
+    /**
+     * Method to test:
+     * Incumbent.getSolution()
+     * <p>
+     * What it does:
+     * Give a copy of the recorded order, which a better solution recorded later doesn't change
+     */
+    @Nested
+    @DisplayName("Test on Incumbent")
+    class TestIncumbent {
+        @Test
+        @DisplayName("Solution read not changed by a better one")
+        void solutionReadNotChangedByBetterOne() {
+            Incumbent incumbent = new Incumbent(3);
+            incumbent.record(new int[]{0, 1, 2}, 10);
+
+            // Method to test
+            int[] solution = incumbent.getSolution();
+            incumbent.record(new int[]{0, 2, 1}, 5);
+
+            // Check answer
+            assertTrue(Arrays.equals(new int[]{0, 1, 2}, solution), "Solution read must not change afterwards");
+            assertTrue(Arrays.equals(new int[]{0, 2, 1}, incumbent.getSolution()), "Better solution must be recorded");
+            assertEquals(5, incumbent.getSolutionCost(), 1e-6, "Cost must be the one of the recorded solution");
+        }
+    }
+
+    /**
+     * Method to test:
+     * CollapsedGraph.collapse()
+     * <p>
+     * What it does:
+     * Merge the vertices on the same intersection and expand the optimal tour back to every vertex
+     */
+    @Nested
+    @DisplayName("Test on CollapsedGraph")
+    class TestCollapsedGraph {
+        @Test
+        @DisplayName("Same optimal cost with fewer vertices")
+        void sameOptimalCostWithFewerVertices() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge7.xml");
+            ArrayList<Request> requests = tour.getPlanningRequests();
+            tour.addRequest(new Request(60, 120, requests.get(0).getPickupAddress(), requests.get(1).getDeliveryAddress()));
+            tour.addRequest(new Request(60, 120, requests.get(2).getPickupAddress(), requests.get(2).getPickupAddress()));
+            tour.addRequest(new Request(60, 120, tour.getDepotAddress(), requests.get(3).getDeliveryAddress()));
+            graph = tour.buildCompleteGraph(cityMap.getIntersections());
+            double cost = solve(new HeldKarpTSP());
+            CompleteGraph collapsedGraph = CollapsedGraph.collapse(graph);
+
+            // Method to test
+            TSP4 tsp = new TSP4();
+            tour.setTourComputed(false);
+            tsp.searchSolution(100000, collapsedGraph, tour);
+
+            // Check answer
+            assertTrue(collapsedGraph.getNbVertices() < graph.getNbVertices(), "Co-located vertices must be merged");
+            assertEquals(cost, tsp.getSolutionCost(), 1e-6, "Merging must keep the optimal cost");
+            int[] order = collapsedGraph.expandOrder(tsp.getBestSol());
+            int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) rank[order[i]] = i;
+            assertEquals(graph.getNbVertices(), Arrays.stream(rank).distinct().count(), "Every vertex must be visited once");
+            for (int vertex = 2; vertex < order.length; vertex += 2) {
+                assertTrue(rank[vertex - 1] < rank[vertex], "Pickup must be visited before its delivery");
+            }
+            assertEquals(cost, LocalSearch.tourCost(graph, order), 1e-6, "Expanded tour must have the same cost");
+            assertEquals(graph.getNbVertices(), tour.getListShortestPaths().size(), "Published tour must visit every vertex");
+        }
+    }
+
+    /**
+     * Method to test:
+     * SolverRegistry.select()
+     * <p>
+     * What it does:
+     * Choose the solver from the size of the graph and the time limit, unless a solver is forced
+     */
+    @Nested
+    @DisplayName("Test on SolverRegistry")
+    class TestSolverRegistry {
+        @Test
+        @DisplayName("Solver suited to the size of the graph")
+        void solverSuitedToSizeOfGraph() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            SolverRegistry registry = new SolverRegistry();
+            Precedence precedence = Precedence.pickupDelivery(graph.getNbVertices());
+            precedence.add(3, 2);
+            CompleteGraph constrainedGraph = new CompleteGraph(graph.listNodesGraph, precedence);
+
+            // Method to test and check answer
+            assertTrue(registry.select(graph, Tour.DEFAULT_TIME_LIMIT) instanceof HeldKarpTSP, "Small plannings must be solved by dynamic programming");
+            assertTrue(registry.select(constrainedGraph, Tour.DEFAULT_TIME_LIMIT) instanceof ParallelTSP, "Medium graphs must be solved by branch and bound");
+            assertEquals("lns", registry.selectName(graphOfSize(101), Tour.DEFAULT_TIME_LIMIT), "Large plannings must be solved by a heuristic");
+            assertEquals("bnb", registry.selectName(graphOfSize(29), Tour.DEFAULT_TIME_LIMIT), "Medium plannings must be solved by branch and bound");
+            assertEquals("lns", registry.selectName(graphOfSize(29), 100), "Short time limits must be given to a heuristic");
+            assertEquals("dp", registry.selectName(graphOfSize(2 * HeldKarpTSP.MAX_REQUESTS + 1), SolverRegistry.MIN_DYNAMIC_PROGRAMMING_TIME), "Dynamic programming must solve its largest plannings within its minimal time");
+            assertEquals("dp", registry.selectName(graphOfSize(19), 100), "Short time limits must leave small plannings to dynamic programming");
+            assertEquals("lns", registry.selectName(graphOfSize(21), 100), "Short time limits must not be given to a large dynamic programming");
+            registry.setForcedSolver("tsp3");
+            assertTrue(registry.select(graph, Tour.DEFAULT_TIME_LIMIT) instanceof TSP3, "Forced solver must be used");
+            assertThrows(IllegalArgumentException.class, () -> registry.setForcedSolver("unknown"), "Unknown solver must be rejected");
+            System.setProperty(SolverRegistry.SOLVER_PROPERTY, "unknown");
+            try {
+                assertEquals(SolverRegistry.AUTOMATIC, new SolverRegistry().getForcedSolver(), "Unknown solver property must fall back to the automatic choice");
+            } finally {
+                System.clearProperty(SolverRegistry.SOLVER_PROPERTY);
+            }
+        }
+
+        /**
+         * @param nbVertices the number of vertices
+         * @return a graph of a planning with this number of vertices and no arc
+         */
+        private Graph graphOfSize(int nbVertices) {
+            Precedence precedence = Precedence.pickupDelivery(nbVertices);
+            return new Graph() {
+                public int getNbVertices() { return nbVertices; }
+                public double getCost(int i, int j) { return -1; }
+                public boolean isArc(int i, int j) { return false; }
+                public Precedence getPrecedence() { return precedence; }
+            };
+        }
+    }
+
+    /**
+     * Method to test:
+     * Fleet.computeTours()
+     * <p>
+     * What it does:
+     * Split the requests between several couriers, keeping each pickup with its delivery, and compute their tours
+     * at the same time
+     */
+    @Nested
+    @DisplayName("Test on Fleet")
+    class TestFleet {
+        @Test
+        @DisplayName("Every request delivered by one courier")
+        void everyRequestDeliveredByOneCourier() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+
+            // Method to test
+            Fleet fleet = new Fleet(tour, 3);
+            fleet.computeTours(cityMap.getIntersections());
+
+            // Check answer
+            assertEquals(3, fleet.getCourierTours().size(), "Every courier must get requests");
+            int nbRequests = 0;
+            for (Tour courierTour : fleet.getCourierTours()) {
+                for (Request request : courierTour.getPlanningRequests()) {
+                    assertTrue(tour.getPlanningRequests().contains(request), "Couriers must share the requests of the planning");
+                }
+                nbRequests += courierTour.getPlanningRequests().size();
+                assertTrue(courierTour.isTourComputed(), "Every tour must be computed");
+                assertEquals(2 * courierTour.getPlanningRequests().size() + 1, courierTour.getListShortestPaths().size(), "Every tour must visit its pickups and deliveries");
+            }
+            assertEquals(tour.getPlanningRequests().size(), nbRequests, "Every request must be given to one courier");
+            assertTrue(fleet.getTotalLength() >= cost - 1e-6, "Several tours can't be shorter than a single one");
+        }
+
+        @Test
+        @DisplayName("Processors shared between the couriers")
+        void processorsSharedBetweenCouriers() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            tour.getSolverRegistry().setParallelism(8);
+            tour.setTargetGap(0.05);
+
+            // Method to test
+            Fleet fleet = new Fleet(tour, 3);
+            fleet.computeTours(cityMap.getIntersections());
+
+            // Check answer
+            for (Tour courierTour : fleet.getCourierTours()) {
+                assertTrue(courierTour.isTourComputed(), "Every tour must be computed");
+                assertEquals(2, courierTour.getSolverRegistry().getParallelism(), "Couriers must share the threads of the planning");
+                assertEquals(0.05, courierTour.getTargetGap(), 1e-9, "Couriers must keep the target gap of the planning");
+            }
+        }
+    }
+
+    /**
+     * Method to test:
+     * Tour.reoptimizeTour()
+     * <p>
+     * What it does:
+     * Improve a tour where a request has been added at the end, starting from its current order
+     */
+    @Nested
+    @DisplayName("Test on reoptimizeTour")
+    class TestReoptimizeTour {
+        @Test
+        @DisplayName("Added request moved to a better place")
+        void addedRequestMovedToBetterPlace() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            tour.computeTour(cityMap.getIntersections());
+            ArrayList<Request> requests = tour.getPlanningRequests();
+            Request request = new Request(60, 120, requests.get(0).getDeliveryAddress(), requests.get(3).getPickupAddress());
+            int size = tour.getListShortestPaths().size();
+            tour.insertRequest(requests.size(), size - 1, size, request, cityMap.getIntersections());
+            double length = tour.getTourLength();
+            graph = tour.buildCompleteGraph(cityMap.getIntersections());
+            double cost = solve(new HeldKarpTSP());
+            tour.getSolverRegistry().setForcedSolver(SolverRegistry.LARGE_NEIGHBOURHOOD_SEARCH);
+
+            // Method to test
+            tour.reoptimizeTour(cityMap.getIntersections(), Tour.DEFAULT_REOPTIMIZATION_TIME);
+
+            // Check answer
+            assertTrue(tour.isTourComputed(), "Re-optimization must end within its budget");
+            assertTrue(tour.getTourLength() <= length + 1e-6, "Re-optimization can't make the tour longer");
+            assertTrue(tour.getTourLength() <= cost * 1.02, "Re-optimized tour must be near optimal");
+            assertEquals(graph.getNbVertices(), tour.getListShortestPaths().size(), "Every vertex must be visited");
+            int[] rank = new int[graph.getNbVertices()];
+            for (int i = 0; i < tour.getListShortestPaths().size(); i++) rank[tour.getListShortestPaths().get(i).getEndNodeNumber()] = i;
+            for (int vertex = 2; vertex < rank.length; vertex += 2) {
+                assertTrue(rank[vertex - 1] < rank[vertex], "Pickup must be visited before its delivery");
+            }
+        }
+    }
+
+    /**
+     * Method to test:
+     * BestInsertion.insert()
+     * <p>
+     * What it does:
+     * Insert a new request where it makes the tour the shortest, with the distances of four searches
+     */
+    @Nested
+    @DisplayName("Test on BestInsertion")
+    class TestBestInsertion {
+        @Test
+        @DisplayName("Request inserted at its cheapest place")
+        void requestInsertedAtCheapestPlace() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            tour.computeTour(cityMap.getIntersections());
+            ArrayList<Request> requests = tour.getPlanningRequests();
+            Request request = new Request(60, 120, requests.get(0).getDeliveryAddress(), requests.get(3).getPickupAddress());
+            ArrayList<ShortestPath> paths = tour.getListShortestPaths();
+            double length = tour.getTourLength();
+
+            // Method to test
+            BestInsertion insertion = new BestInsertion(tour, request, cityMap.getIntersections());
+            ShortestPath lastPath = paths.get(paths.size() - 1);
+            double appendedLength = insertion.getShortestPath(lastPath.getStartAddress(), request.getPickupAddress()).getPathLength()
+                    + insertion.getShortestPath(request.getPickupAddress(), request.getDeliveryAddress()).getPathLength()
+                    + insertion.getShortestPath(request.getDeliveryAddress(), tour.getDepotAddress()).getPathLength()
+                    - lastPath.getPathLength();
+            ShortestPath reversePath = insertion.getShortestPath(paths.get(1).getStartAddress(), request.getDeliveryAddress());
+            insertion.insert();
+
+            // Check answer
+            assertEquals(Dijkstra.compute(cityMap.getIntersections(), new ArrayList<>(List.of(request.getDeliveryAddress())), paths.get(1).getStartAddress()).get(0).getPathLength(),
+                    reversePath.getPathLength(), 1e-6, "Search on the reversed map must give the shortest paths to an address");
+            assertTrue(insertion.getIndexShortestPathToPickup() < insertion.getIndexShortestPathToDelivery(), "Pickup must be visited before its delivery");
+            assertTrue(insertion.getAdditionalLength() <= appendedLength + 1e-6, "Best insertion can't be worse than the end of the tour");
+            assertEquals(length + insertion.getAdditionalLength(), tour.getTourLength(), 1e-6, "Tour must be longer by the additional length");
+            ArrayList<ShortestPath> newPaths = tour.getListShortestPaths();
+            assertEquals(2 * tour.getPlanningRequests().size() + 1, newPaths.size(), "Every address must be visited");
+            for (int i = 0; i + 1 < newPaths.size(); i++) {
+                assertTrue(newPaths.get(i).getEndAddress() == newPaths.get(i + 1).getStartAddress(), "Paths must follow each other");
+            }
+        }
+
+        @Test
+        @DisplayName("Request at addresses already visited")
+        void requestAtAddressesAlreadyVisited() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            tour.computeTour(cityMap.getIntersections());
+            ArrayList<Request> requests = tour.getPlanningRequests();
+            Request request = new Request(60, 120, tour.getDepotAddress(), requests.get(2).getDeliveryAddress());
+            double length = tour.getTourLength();
+
+            // Method to test
+            BestInsertion insertion = new BestInsertion(tour, request, cityMap.getIntersections());
+            insertion.insert();
+
+            // Check answer
+            assertEquals(length + insertion.getAdditionalLength(), tour.getTourLength(), 1e-6, "Tour must be longer by the additional length");
+            assertEquals(length, tour.getTourLength(), 1e-6, "Addresses already visited can be served without any detour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * CostMatrix.of()
+     * <p>
+     * What it does:
+     * Copy the costs and the arcs of a graph into a single array, whatever the kind of graph
+     */
+    @Nested
+    @DisplayName("Test on CostMatrix")
+    class TestCostMatrix {
+        @Test
+        @DisplayName("Same costs and arcs as the graph")
+        void sameCostsAndArcsAsGraph() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            Graph[] graphs = {graph, CollapsedGraph.collapse(graph)};
+
+            for (Graph g : graphs) {
+                // Method to test
+                CostMatrix costs = CostMatrix.of(g);
+
+                // Check answer
+                assertEquals(g.getNbVertices(), costs.getNbVertices(), "Cost matrix must have the vertices of the graph");
+                for (int i = 0; i < g.getNbVertices(); i++) {
+                    for (int j = 0; j < g.getNbVertices(); j++) {
+                        assertEquals(g.isArc(i, j), costs.arc(i, j), "Cost matrix must have the arcs of the graph");
+                        if (g.isArc(i, j)) assertEquals(g.getCost(i, j), costs.cost(i, j), 1e-9, "Cost matrix must have the costs of the graph");
+                    }
+                }
+                assertEquals(-1, costs.getCost(-1, 0), "Checked accessor must reject a vertex out of the graph");
+            }
+            assertTrue(CostMatrix.of(graph) == graph.getCostMatrix(), "Complete graph must build its cost matrix once");
+        }
+    }
+
+    /**
+     * Method to test:
+     * BestFirstTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Expand the node with the lowest bound first, and explore the nodes depth-first once the memory limit is reached
+     */
+    @Nested
+    @DisplayName("Test on BestFirstTSP")
+    class TestBestFirstTSP {
+        @Test
+        @DisplayName("Optimal tour with and without memory")
+        void optimalTourWithAndWithoutMemory() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            BestFirstTSP tsp = new BestFirstTSP(TSP4::new);
+            BestFirstTSP cappedTsp = new BestFirstTSP(TSP4::new);
+            cappedTsp.setMemoryLimit(1 << 16);
+
+            // Method to test
+            double bestFirstCost = solve(tsp);
+            double cappedCost = solve(cappedTsp);
+
+            // Check answer
+            assertEquals(cost, bestFirstCost, 1e-6, "Best-first search must find the optimal tour");
+            assertEquals(cost, cappedCost, 1e-6, "Depth-first fallback must find the optimal tour");
+            assertTrue(cappedTsp.getNbExpandedNodes() < tsp.getNbExpandedNodes(), "Memory limit must stop the best-first expansion");
+            assertTrue(cappedTsp.getNbDepthFirstNodes() > tsp.getNbDepthFirstNodes(), "Nodes beyond the memory limit must be explored depth-first");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TemplateTSP.setMaxDiscrepancies()
+     * <p>
+     * What it does:
+     * Explore the tours which differ from the order of the iterator in at most k places, for growing values of k,
+     * before the exact search
+     */
+    @Nested
+    @DisplayName("Test on limited discrepancy search")
+    class TestLimitedDiscrepancySearch {
+        @Test
+        @DisplayName("Near-optimal tour from the discrepancy passes")
+        void nearOptimalTourFromDiscrepancyPasses() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            SolverRegistry registry = new SolverRegistry();
+            registry.setForcedSolver("tsp3-lds");
+            TemplateTSP tsp = (TemplateTSP) registry.select(graph, 100000);
+            registry.setForcedSolver(SolverRegistry.BRANCH_AND_BOUND);
+            ParallelTSP defaultTsp = (ParallelTSP) registry.select(graph, 100000);
+            TSP3 exactTsp = new TSP3();
+
+            // Method to test
+            double discrepancyCost = solve(tsp);
+            double defaultCost = solve(defaultTsp);
+            solve(exactTsp);
+
+            // Check answer
+            assertTrue(tsp.getDiscrepancyCost() <= cost * 1.01, "Discrepancy passes must find a near-optimal tour");
+            assertTrue(tsp.getDiscrepancyTime() < 1000, "Discrepancy passes must end before the exact search");
+            assertTrue(defaultTsp.getDiscrepancyCost() <= cost * 1.01, "Default branch and bound must run the discrepancy passes");
+            assertTrue(defaultTsp.getDiscrepancyTime() < 1000, "Discrepancy passes must end before the tasks are forked");
+            assertEquals(-1, exactTsp.getDiscrepancyCost(), "Discrepancy passes must be disabled by default in the sequential search");
+            assertEquals(cost, discrepancyCost, 1e-6, "Exact search after the discrepancy passes must find the optimal tour");
+            assertEquals(cost, defaultCost, 1e-6, "Exact search after the discrepancy passes must find the optimal tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * AntColonyTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Build tours respecting the precedences with several ant colonies sharing their pheromone, and publish the best
+     * one until the time limit
+     */
+    @Nested
+    @DisplayName("Test on ant colony optimization")
+    class TestAntColonyTSP {
+        @Test
+        @DisplayName("Valid near-optimal tour from parallel colonies")
+        void validTourFromParallelColonies() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            AntColonyTSP tsp = new AntColonyTSP(new Random(1), 2);
+            tour.setTourComputed(false);
+
+            // Method to test
+            tsp.searchSolution(500, graph, tour);
+
+            // Check answer
+            checkSolution(tsp);
+            assertTrue(tsp.getNbIterations() > 0, "Colonies must run until the time limit");
+            assertTrue(tsp.getSolutionCost() >= cost - 1e-6, "No tour can be cheaper than the optimal one");
+            assertTrue(tsp.getSolutionCost() <= cost * 1.01, "Colonies must find a near-optimal tour");
+            assertEquals(tsp.getSolutionCost(), tour.getTourLength(), 1e-6, "Best tour must be published to the tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * GeneticTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Evolve populations of tours on several islands with a crossover and a mutation keeping the precedences, the
+     * islands exchanging their best tours, and publish the best one until the time limit
+     */
+    @Nested
+    @DisplayName("Test on island genetic algorithm")
+    class TestGeneticTSP {
+        @Test
+        @DisplayName("Crossover and mutation keep the precedences")
+        void crossoverAndMutationKeepPrecedences() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            GeneticTSP tsp = new GeneticTSP(new Random(1), 1);
+            GeneticTSP.Island island = tsp.new Island(new Random(1), graph, CheapestInsertion.compute(graph));
+            int[] parent1 = new int[graph.getNbVertices()];
+            int[] parent2 = new int[graph.getNbVertices()];
+
+            for (int k = 0; k < 1000; k++) {
+                island.randomTour(parent1);
+                island.randomTour(parent2);
+                checkOrder(parent1);
+                checkOrder(parent2);
+
+                // Method to test
+                island.crossover(parent1, parent2);
+
+                // Check answer
+                checkOrder(island.getChild());
+                int[] rank1 = new int[parent1.length];
+                int[] rank2 = new int[parent2.length];
+                for (int i = 0; i < parent1.length; i++) {
+                    rank1[parent1[i]] = i;
+                    rank2[parent2[i]] = i;
+                }
+                int[] child = island.getChild();
+                for (int i = 1; i + 1 < child.length; i++) {
+                    assertTrue(rank1[child[i]] < rank1[child[i + 1]] || rank2[child[i]] < rank2[child[i + 1]],
+                            "Consecutive vertices of the child must be in the order of one of the parents");
+                }
+
+                // Method to test
+                island.mutate();
+
+                // Check answer
+                checkOrder(island.getChild());
+            }
+        }
+
+        @Test
+        @DisplayName("Best tours migrate between the islands")
+        void bestToursMigrate() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            GeneticTSP tsp = new GeneticTSP(new Random(1), 2);
+            GeneticTSP singleTsp = new GeneticTSP(new Random(1), 1);
+            tour.setTourComputed(false);
+
+            // Method to test
+            tsp.searchSolution(500, graph, tour);
+            tour.setTourComputed(false);
+            singleTsp.searchSolution(100, graph, tour);
+
+            // Check answer
+            checkSolution(tsp);
+            assertTrue(tsp.getNbGenerations() >= 4000, "Islands must evolve until the time limit");
+            assertTrue(tsp.getNbMigrations() > 0, "Islands must receive the best tours of the previous island");
+            assertEquals(0, singleTsp.getNbMigrations(), "A single island has no other island to send tours to");
+            assertTrue(tsp.getSolutionCost() >= cost - 1e-6, "No tour can be cheaper than the optimal one");
+            assertTrue(tsp.getSolutionCost() <= cost * 1.01, "Islands must find a near-optimal tour");
+        }
+    }
+
+    /**
+     * Method to test:
+     * TSP.getOptimalityGap() and TSP.setTargetGap()
+     * <p>
+     * What it does:
+     * Bound the cost of the optimal tour from below during the search, and stop the search once the best tour is
+     * within the target gap of this bound
+     */
+    @Nested
+    @DisplayName("Test on optimality gap")
+    class TestOptimalityGap {
+        @Test
+        @DisplayName("Lower bound and early stop at the target gap")
+        void lowerBoundAndEarlyStop() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            TSP4 exactTsp = new TSP4();
+            TSP4 looseTsp = new TSP4();
+            looseTsp.setTargetGap(0.9);
+            BestFirstTSP bestFirstTsp = new BestFirstTSP(TSP4::new);
+            bestFirstTsp.setTargetGap(0.02);
+
+            // Method to test
+            solve(exactTsp);
+            solve(looseTsp);
+            solve(bestFirstTsp);
+
+            // Check answer
+            assertEquals(cost, exactTsp.getLowerBound(), 1e-6, "Complete search must prove the optimal cost");
+            assertEquals(0, exactTsp.getOptimalityGap(), 1e-9, "Optimal tour must have no gap");
+            assertTrue(looseTsp.isTargetGapReached(), "Search must stop once the target gap is reached");
+            assertTrue(looseTsp.getNbExploredNodes() < exactTsp.getNbExploredNodes(), "Early stop must explore fewer nodes");
+            assertTrue(looseTsp.getLowerBound() <= cost + 1e-6, "Lower bound can't exceed the optimal cost");
+            assertTrue(bestFirstTsp.getLowerBound() <= cost + 1e-6, "Lower bound can't exceed the optimal cost");
+            assertTrue(bestFirstTsp.getOptimalityGap() <= 0.02 + 1e-9, "Best-first search must stop within the target gap");
+        }
+
+        @Test
+        @DisplayName("Lower bound of the open tasks rising during the parallel search")
+        void lowerBoundOfOpenTasksRising() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            TSP4 rootTsp = new TSP4();
+            rootTsp.prepare(graph, new Incumbent(graph.getNbVertices()), null, 0, Long.MAX_VALUE);
+            double rootBound = rootTsp.evaluate(new int[]{0}, 1, 0);
+            ParallelTSP tsp = new ParallelTSP(TSP4::new, 1);
+            // a gap reached only once the lowest bound of the open tasks is above the bound of the root
+            double targetGap = (1 - (rootBound + 100) / cost);
+            tsp.setTargetGap(targetGap);
+
+            // Method to test
+            solve(tsp);
+
+            // Check answer
+            assertTrue(tsp.isTargetGapReached(), "Search must stop once the open tasks are within the target gap");
+            assertTrue(tsp.getLowerBound() > rootBound, "Lower bound must rise above the bound of the root");
+            assertTrue(tsp.getLowerBound() <= cost + 1e-6, "Lower bound can't exceed the optimal cost");
+            assertTrue(tsp.getOptimalityGap() <= targetGap + 1e-9, "Search must stop within the target gap");
+        }
+    }
+
+    /**
+     * Method to test:
+     * OnlineDispatcher.submit()
+     * <p>
+     * What it does:
+     * Insert the requests received during the tour after the visited stops, and improve the rest of the tour in the
+     * background
+     */
+    @Nested
+    @DisplayName("Test on OnlineDispatcher")
+    class TestOnlineDispatcher {
+        @Test
+        @DisplayName("Requests received during the tour")
+        void requestsReceivedDuringTour() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            List<Request> newRequests = new ArrayList<>();
+            for (int r = 0; r < 3; r++) newRequests.add(0, tour.getPlanningRequests().remove(tour.getPlanningRequests().size() - 1));
+            tour.computeTour(cityMap.getIntersections());
+            OnlineDispatcher dispatcher = new OnlineDispatcher(tour, cityMap.getIntersections());
+            dispatcher.setOptimizationTime(300);
+            dispatcher.setNbVisitedStops(2);
+            int[] visitedStops = {tour.getListShortestPaths().get(0).getEndNodeNumber(), tour.getListShortestPaths().get(1).getEndNodeNumber()};
+
+            // Method to test
+            dispatcher.start();
+            for (Request request : newRequests) dispatcher.submit(request);
+            boolean idle = dispatcher.awaitIdle(30000);
+            dispatcher.stop();
+
+            // Check answer
+            assertTrue(idle, "Dispatcher must insert every request and optimize the tour");
+            assertEquals(9, tour.getPlanningRequests().size(), "Every received request must be in the planning");
+            List<ShortestPath> route = dispatcher.getRoute();
+            assertEquals(19, route.size(), "Route must go through every stop and back to the depot");
+            int[] rank = new int[19];
+            Arrays.fill(rank, -1);
+            double length = 0;
+            for (int i = 0; i < route.size(); i++) {
+                int vertex = route.get(i).getEndNodeNumber();
+                if (vertex != 0) {
+                    assertEquals(-1, rank[vertex], "Every stop must be visited once");
+                    rank[vertex] = i;
+                }
+                length += route.get(i).getPathLength();
+            }
+            for (int vertex = 2; vertex < rank.length; vertex += 2) {
+                assertTrue(rank[vertex - 1] >= 0 && rank[vertex - 1] < rank[vertex], "Pickup must be visited before its delivery");
+            }
+            assertEquals(visitedStops[0], route.get(0).getEndNodeNumber(), "Visited stops must stay in place");
+            assertEquals(visitedStops[1], route.get(1).getEndNodeNumber(), "Visited stops must stay in place");
+            assertEquals(length, tour.getTourLength(), 1e-6, "Tour length must be the length of its route");
+        }
+
+        @Test
+        @DisplayName("Route read while requests are inserted")
+        void routeReadDuringInsertions() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            List<Request> newRequests = new ArrayList<>();
+            for (int r = 0; r < 6; r++) newRequests.add(0, tour.getPlanningRequests().remove(tour.getPlanningRequests().size() - 1));
+            tour.computeTour(cityMap.getIntersections());
+            OnlineDispatcher dispatcher = new OnlineDispatcher(tour, cityMap.getIntersections());
+            dispatcher.setOptimizationTime(100);
+            List<ShortestPath> firstRoute = dispatcher.getRoute();
+            List<ShortestPath> firstRouteCopy = new ArrayList<>();
+            for (ShortestPath path : firstRoute) firstRouteCopy.add(new ShortestPath(path));
+            AtomicBoolean reading = new AtomicBoolean(true);
+            AtomicReference<String> invalidRoute = new AtomicReference<>();
+            AtomicLong nbReads = new AtomicLong();
+            Thread reader = new Thread(() -> {
+                while (reading.get() && invalidRoute.get() == null) {
+                    String error = routeError(dispatcher.getRoute());
+                    if (error == null) error = routeError(tour.getListShortestPaths());
+                    if (error != null) invalidRoute.set(error);
+                    nbReads.incrementAndGet();
+                }
+            });
+            reader.start();
+
+            // Method to test
+            dispatcher.start();
+            for (Request request : newRequests) dispatcher.submit(request);
+            boolean idle = dispatcher.awaitIdle(30000);
+            dispatcher.stop();
+            reading.set(false);
+            reader.join();
+
+            // Check answer
+            assertTrue(idle, "Dispatcher must insert every request and optimize the tour");
+            assertEquals(null, invalidRoute.get(), "Route read during the insertions must always be a complete tour");
+            assertTrue(nbReads.get() > 0, "Route must have been read during the insertions");
+            assertEquals(19, dispatcher.getRoute().size(), "Route must go through every stop and back to the depot");
+            assertEquals(firstRouteCopy, firstRoute, "Route already read must not change afterwards");
+            for (int i = 0; i < firstRoute.size(); i++) {
+                assertEquals(firstRouteCopy.get(i).getStartNodeNumber(), firstRoute.get(i).getStartNodeNumber(), "Route already read must not change afterwards");
+                assertEquals(firstRouteCopy.get(i).getEndNodeNumber(), firstRoute.get(i).getEndNodeNumber(), "Route already read must not change afterwards");
+            }
+        }
+
+        /**
+         * @param route a route of the tour
+         * @return why the route isn't a complete tour from the depot back to the depot, or null if it is one
+         */
+        private String routeError(List<ShortestPath> route) {
+            if (route.size() % 2 == 0) return "even number of paths: " + route.size();
+            if (route.get(0).getStartNodeNumber() != 0 || !route.get(0).getStartAddress().equals(tour.getDepotAddress())) return "route not starting at the depot";
+            for (int i = 0; i < route.size() - 1; i++) {
+                if (route.get(i).getEndNodeNumber() != route.get(i + 1).getStartNodeNumber()
+                        || !route.get(i).getEndAddress().equals(route.get(i + 1).getStartAddress())) return "path " + i + " not followed by the next one";
+            }
+            ShortestPath last = route.get(route.size() - 1);
+            if (last.getEndNodeNumber() != 0 || !last.getEndAddress().equals(tour.getDepotAddress())) return "route not ending at the depot";
+            return null;
+        }
+    }
+
+    /**
+     * Method to test:
+     * BeamSearchTSP.searchSolution()
+     * <p>
+     * What it does:
+     * Build the tour layer by layer, keeping the best partial tours of each layer
+     */
+    @Nested
+    @DisplayName("Test on BeamSearchTSP")
+    class TestBeamSearchTSP {
+        @Test
+        @DisplayName("Wide beam is exact, narrow beam is valid")
+        void wideAndNarrowBeam() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            BeamSearchTSP wideTsp = new BeamSearchTSP(50000);
+            BeamSearchTSP narrowTsp = new BeamSearchTSP(1);
+
+            // Method to test
+            solve(wideTsp);
+            solve(narrowTsp);
+
+            // Check answer
+            assertEquals(cost, wideTsp.getBeamCost(), 1e-6, "Beam wider than the layers must find the optimal tour");
+            assertTrue(narrowTsp.getBeamCost() >= cost - 1e-6, "Beam can't beat the optimal tour");
+            assertTrue(narrowTsp.getSolutionCost() <= narrowTsp.getBeamCost() + 1e-6, "Local search can't worsen the tour of the beam");
+            assertThrows(IllegalArgumentException.class, () -> new BeamSearchTSP(0), "Beam width must be positive");
+        }
+
+        @Test
+        @DisplayName("Partial tours completed at the time limit")
+        void partialToursCompletedAtTimeLimit() throws Exception {
+            loadPlanning("largeMap.xml", "requestsLarge9.xml");
+            double cost = solve(new HeldKarpTSP());
+            BeamSearchTSP tsp = new BeamSearchTSP(50000);
+            tour.setTourComputed(false);
+
+            // Method to test
+            tsp.searchSolution(1, graph, tour);
+
+            // Check answer
+            checkSolution(tsp);
+            assertTrue(tsp.getBeamCost() >= cost - 1e-6, "Beam must complete its partial tours when the time is up");
+            assertTrue(tsp.getSolutionCost() <= tsp.getBeamCost() + 1e-6, "Best tour can't be worse than the tour of the beam");
+        }
+    }
+}